@@ -0,0 +1,140 @@
+package dev.avorakh.tip.mongodb;
+
+import static com.mongodb.client.model.Accumulators.avg;
+import static com.mongodb.client.model.Accumulators.sum;
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Projections.computed;
+import static com.mongodb.client.model.Projections.excludeId;
+import static com.mongodb.client.model.Projections.fields;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.descending;
+import static com.mongodb.client.model.Sorts.orderBy;
+import static dev.avorakh.tip.mongodb.PipelineTemplate.param;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+/**
+ * The {@code bank.accounts} report pipelines, as {@link PipelineTemplate}s with default parameter values. The
+ * templates and their default-bound stages are built once.
+ */
+public enum AccountPipeline {
+    MATCH(List.of(Aggregates.match(eq("account_id", param("accountId")))), Map.of("accountId", "MDB79101843")),
+
+    MATCH_AND_GROUP(
+            List.of(
+                    Aggregates.match(eq("account_id", param("accountId"))),
+                    Aggregates.group(
+                            "$account_type", sum("total_balance", "$balance"), avg("average_balance", "$balance"))),
+            Map.of("accountId", "MDB79101843")),
+
+    ACCOUNT_TYPE_SUMMARY(
+            List.of(
+                    Aggregates.match(gt("balance", param("minBalance"))),
+                    Aggregates.group(
+                            "$account_type", sum("total_balance", "$balance"), avg("average_balance", "$balance"))),
+            Map.of("minBalance", 1000)),
+
+    MATCH_SORT_AND_PROJECT(
+            List.of(
+                    Aggregates.match(and(gt("balance", param("minBalance")), eq("account_type", param("accountType")))),
+                    Aggregates.sort(orderBy(descending("balance"))),
+                    Aggregates.project(fields(
+                            include("account_id", "account_type", "balance"),
+                            computed("euro_balance", new Document("$divide", List.of("$balance", param("euroRate")))),
+                            excludeId()))),
+            Map.of("minBalance", 1500, "accountType", "checking", "euroRate", 1.20F),
+            new Paging(0, "balance", true, 2)),
+
+    GBP_BALANCES_FOR_CHECKING(
+            List.of(
+                    Aggregates.match(and(eq("account_type", param("accountType")), gt("balance", param("minBalance")))),
+                    Aggregates.sort(orderBy(descending("balance"))),
+                    Aggregates.project(fields(include("account_id", "account_type", "balance"), excludeId()))),
+            Map.of("accountType", "checking", "minBalance", 1500),
+            new Paging(0, "balance", true, 2));
+
+    private final PipelineTemplate template;
+    private final Map<String, Object> defaults;
+    private final List<Bson> stages;
+    private final Paging paging;
+
+    AccountPipeline(List<Bson> stages, Map<String, Object> defaults) {
+        this(stages, defaults, null);
+    }
+
+    AccountPipeline(List<Bson> stages, Map<String, Object> defaults, Paging paging) {
+        this.template = PipelineTemplate.of(name(), stages);
+        this.defaults = defaults;
+        this.stages = List.copyOf(template.bind(defaults));
+        this.paging = paging;
+    }
+
+    /**
+     * @return the stages bound to the default parameter values
+     */
+    public List<Bson> stages() {
+        return stages;
+    }
+
+    /**
+     * @return the stages bound to the default parameter values, replaced by the given ones
+     */
+    public List<Bson> stages(Map<String, ?> parameters) {
+        if (parameters.isEmpty()) {
+            return stages;
+        }
+        Map<String, Object> values = new HashMap<>(defaults);
+        values.putAll(parameters);
+        return List.copyOf(template.bind(values));
+    }
+
+    /**
+     * Creates a keyset pager over the report's documents, for the reports declaring which of their stages filter,
+     * sort and project. Needs an index on the match fields followed by the sort field and {@code _id} to seek.
+     *
+     * @param parameters values replacing the defaults
+     * @throws IllegalArgumentException when the report cannot be paged
+     */
+    public KeysetPager pager(MongoCollection<Document> accounts, Map<String, ?> parameters) {
+        if (paging == null) {
+            throw new IllegalArgumentException(name() + " does not declare a sort to page on");
+        }
+        List<Bson> bound = stages(parameters);
+        BsonDocument projection = bound.get(paging.projectionStage())
+                .toBsonDocument(Document.class, accounts.getCodecRegistry())
+                .getDocument("$project");
+        return new KeysetPager(
+                accounts,
+                List.of(bound.get(paging.filterStage())),
+                paging.sortField(),
+                paging.descending(),
+                projection);
+    }
+
+    public PipelineTemplate template() {
+        return template;
+    }
+
+    public Map<String, Object> defaults() {
+        return defaults;
+    }
+
+    /**
+     * Roles of a report's stages for {@link #pager}.
+     *
+     * @param filterStage     index of the {@code $match} stage selecting the documents
+     * @param sortField       field the report's {@code $sort} stage orders by
+     * @param descending      whether that sort is descending
+     * @param projectionStage index of the {@code $project} stage shaping the documents
+     */
+    record Paging(int filterStage, String sortField, boolean descending, int projectionStage) {}
+}
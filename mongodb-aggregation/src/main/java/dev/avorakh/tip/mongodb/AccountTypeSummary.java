@@ -0,0 +1,19 @@
+package dev.avorakh.tip.mongodb;
+
+/**
+ * Balance totals of one account type.
+ *
+ * @param accountType  the {@code account_type} value
+ * @param count        number of accounts counted
+ * @param totalBalance sum of their balances
+ */
+public record AccountTypeSummary(String accountType, long count, double totalBalance) {
+
+    public double averageBalance() {
+        return count == 0 ? 0.0 : totalBalance / count;
+    }
+
+    AccountTypeSummary plus(long countDelta, double balanceDelta) {
+        return new AccountTypeSummary(accountType, count + countDelta, totalBalance + balanceDelta);
+    }
+}
@@ -0,0 +1,311 @@
+package dev.avorakh.tip.mongodb;
+
+import static com.mongodb.client.model.Accumulators.sum;
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.type;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonType;
+import org.bson.Document;
+
+/**
+ * In-process, incrementally maintained version of the account type summary report: sum, count and average of
+ * {@code balance} per {@code account_type} for accounts with a balance over {@value #MIN_BALANCE}.
+ *
+ * <p>The view is seeded once by an aggregation and then follows a change stream on {@code bank.accounts},
+ * applying inserts, updates, replaces and deletes as deltas. Reads return an immutable snapshot and never block.
+ * The resume token is checkpointed together with the totals in {@value #CHECKPOINT_COLLECTION}, so a restart
+ * resumes the stream instead of rescanning the collection.
+ *
+ * <p>Requires a replica set (a single-node one, {@code mongod --replSet rs0} plus {@code rs.initiate()}, is
+ * enough) running MongoDB 6.0 or newer with pre-images enabled on the collection, see
+ * {@link #enablePreImages(MongoClient)}. Without a pre-image an update or delete cannot be turned into a delta
+ * and the view reseeds itself.
+ */
+public class AccountTypeSummaryView implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(AccountTypeSummaryView.class.getName());
+
+    private static final int MIN_BALANCE = 1000;
+    private static final String BANK_DB_NAME = "bank";
+    private static final String COLLECTION_NAME = "accounts";
+    private static final String CHECKPOINT_COLLECTION = "account_type_summary_checkpoints";
+    private static final String CHECKPOINT_ID = "account_type_summary";
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final int CHECKPOINT_EVERY_EVENTS = 1_000;
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final MongoClient client;
+    private final MongoCollection<Document> accounts;
+    private final MongoCollection<Document> checkpoints;
+    private final AtomicReference<Map<String, AccountTypeSummary>> summaries = new AtomicReference<>(Map.of());
+
+    private BsonDocument resumeToken;
+    private BsonTimestamp startAtOperationTime;
+    private int eventsSinceCheckpoint;
+    private long lastCheckpointNanos = System.nanoTime();
+    private Thread watcher;
+    private volatile boolean running;
+
+    public AccountTypeSummaryView(MongoClient client) {
+        this.client = client;
+        this.accounts = client.getDatabase(BANK_DB_NAME).getCollection(COLLECTION_NAME);
+        this.checkpoints = client.getDatabase(BANK_DB_NAME).getCollection(CHECKPOINT_COLLECTION);
+    }
+
+    /**
+     * Enables the pre-images the view needs to apply updates and deletes on {@code bank.accounts}.
+     */
+    public static void enablePreImages(MongoClient client) {
+        client.getDatabase(BANK_DB_NAME)
+                .runCommand(new Document("collMod", COLLECTION_NAME)
+                        .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+    }
+
+    /**
+     * Restores the last checkpoint, or seeds the view when there is none, and starts following the change stream.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (!restoreCheckpoint()) {
+            seed();
+        }
+        running = true;
+        watcher = Thread.ofPlatform().name("account-type-summary-view").daemon(true).start(this::watch);
+    }
+
+    public Optional<AccountTypeSummary> summary(String accountType) {
+        return Optional.ofNullable(summaries.get().get(accountType));
+    }
+
+    /**
+     * @return immutable snapshot of the totals by account type
+     */
+    public Map<String, AccountTypeSummary> summaries() {
+        return summaries.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (watcher != null) {
+            try {
+                watcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            watcher = null;
+        }
+    }
+
+    private void seed() {
+        var options = ClientSessionOptions.builder().snapshot(true).build();
+        try (ClientSession session = client.startSession(options)) {
+            Map<String, AccountTypeSummary> seeded = new HashMap<>();
+            accounts.aggregate(
+                            session,
+                            List.of(
+                                    // accounts without a string type are left out, as by contribute
+                                    Aggregates.match(
+                                            and(gt("balance", MIN_BALANCE), type("account_type", BsonType.STRING))),
+                                    Aggregates.group("$account_type", sum("count", 1), sum("total", "$balance"))))
+                    .forEach(document -> {
+                        String type = document.getString("_id");
+                        seeded.put(
+                                type,
+                                new AccountTypeSummary(
+                                        type,
+                                        document.get("count", Number.class).longValue(),
+                                        document.get("total", Number.class).doubleValue()));
+                    });
+            summaries.set(Map.copyOf(seeded));
+            BsonTimestamp snapshotTime = session.getSnapshotTimestamp();
+            // the snapshot already contains the writes at its own timestamp
+            startAtOperationTime = new BsonTimestamp(snapshotTime.getTime(), snapshotTime.getInc() + 1);
+            resumeToken = null;
+        }
+        LOGGER.info("✅ Seeded account type summary: " + summaries.get());
+    }
+
+    private void watch() {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = openCursor()) {
+                while (running) {
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    if (cursor.getResumeToken() != null) {
+                        resumeToken = cursor.getResumeToken();
+                    }
+                    if (event != null && !apply(event)) {
+                        break;
+                    }
+                    checkpointIfDue();
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() != CHANGE_STREAM_HISTORY_LOST) {
+                    retryLater(e);
+                    continue;
+                }
+                LOGGER.warning("Resume point is no longer in the oplog, reseeding account type summary");
+                seed();
+            } catch (MongoException e) {
+                retryLater(e);
+            }
+        }
+        checkpoint();
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> openCursor() {
+        var stream = accounts.watch()
+                .fullDocument(FullDocument.WHEN_AVAILABLE)
+                .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream.resumeAfter(resumeToken);
+        } else if (startAtOperationTime != null) {
+            stream.startAtOperationTime(startAtOperationTime);
+        }
+        return stream.cursor();
+    }
+
+    /**
+     * @return {@code false} when the event cannot be applied and the view was reseeded, so the stream has to be
+     *     reopened from the new seed
+     */
+    private boolean apply(ChangeStreamDocument<Document> event) {
+        var operation = event.getOperationType();
+        switch (operation) {
+            case INSERT -> applyDelta(null, event.getFullDocument());
+            case UPDATE, REPLACE, DELETE -> {
+                Document before = event.getFullDocumentBeforeChange();
+                Document after = event.getFullDocument();
+                boolean missingImage = before == null || (operation != OperationType.DELETE && after == null);
+                if (missingImage) {
+                    LOGGER.warning("Change event without pre- or post-image, reseeding account type summary");
+                    seed();
+                    return false;
+                }
+                applyDelta(before, after);
+            }
+            case DROP, DROP_DATABASE, RENAME, INVALIDATE -> {
+                LOGGER.warning("Accounts collection was " + operation + ", reseeding account type summary");
+                seed();
+                return false;
+            }
+            default -> {
+                // other events do not change balances
+            }
+        }
+        eventsSinceCheckpoint++;
+        return true;
+    }
+
+    private void applyDelta(Document before, Document after) {
+        Map<String, AccountTypeSummary> updated = new HashMap<>(summaries.get());
+        contribute(updated, before, -1);
+        contribute(updated, after, 1);
+        summaries.set(Map.copyOf(updated));
+    }
+
+    private static void contribute(Map<String, AccountTypeSummary> totals, Document account, int sign) {
+        if (account == null
+                || !(account.get("balance") instanceof Number balance)
+                || balance.doubleValue() <= MIN_BALANCE
+                || !(account.get("account_type") instanceof String type)) {
+            return;
+        }
+        totals.merge(
+                type,
+                new AccountTypeSummary(type, sign, sign * balance.doubleValue()),
+                (current, delta) -> current.plus(delta.count(), delta.totalBalance()));
+    }
+
+    private void checkpointIfDue() {
+        boolean intervalPassed = System.nanoTime() - lastCheckpointNanos > CHECKPOINT_INTERVAL.toNanos();
+        if (eventsSinceCheckpoint >= CHECKPOINT_EVERY_EVENTS || intervalPassed) {
+            checkpoint();
+        }
+    }
+
+    private void checkpoint() {
+        if (resumeToken == null) {
+            return;
+        }
+        List<Document> totals = new ArrayList<>();
+        summaries.get().values().forEach(summary -> totals.add(new Document("account_type", summary.accountType())
+                .append("count", summary.count())
+                .append("total_balance", summary.totalBalance())));
+        var checkpoint = new Document("_id", CHECKPOINT_ID)
+                .append("resume_token", resumeToken)
+                .append("totals", totals)
+                .append("last_updated", new Date());
+        try {
+            checkpoints.replaceOne(Filters.eq("_id", CHECKPOINT_ID), checkpoint, new ReplaceOptions().upsert(true));
+            eventsSinceCheckpoint = 0;
+            lastCheckpointNanos = System.nanoTime();
+        } catch (MongoException e) {
+            LOGGER.log(Level.WARNING, "Could not checkpoint account type summary", e);
+        }
+    }
+
+    private boolean restoreCheckpoint() {
+        Document checkpoint = checkpoints.find(Filters.eq("_id", CHECKPOINT_ID)).first();
+        if (checkpoint == null) {
+            return false;
+        }
+        Map<String, AccountTypeSummary> restored = new HashMap<>();
+        checkpoint.getList("totals", Document.class).forEach(total -> {
+            String type = total.getString("account_type");
+            restored.put(
+                    type,
+                    new AccountTypeSummary(
+                            type,
+                            total.get("count", Number.class).longValue(),
+                            total.get("total_balance", Number.class).doubleValue()));
+        });
+        summaries.set(Map.copyOf(restored));
+        resumeToken = checkpoint.get("resume_token", Document.class).toBsonDocument();
+        startAtOperationTime = null;
+        LOGGER.info("✅ Restored account type summary from checkpoint: " + summaries.get());
+        return true;
+    }
+
+    private void retryLater(MongoException e) {
+        LOGGER.log(Level.WARNING, "Account type summary change stream failed, retrying", e);
+        try {
+            Thread.sleep(RETRY_DELAY);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dev.avorakh.tip.mongodb;
+
+import com.mongodb.client.AggregateIterable;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.bson.conversions.Bson;
+
+/**
+ * Per-execution options of a {@link PipelineTemplate}.
+ *
+ * @param allowDiskUse whether blocking stages may spill to disk, {@code null} keeps the server default
+ * @param batchSize    documents per cursor batch, {@code 0} keeps the server default
+ * @param hint         index to use, {@code null} lets the planner choose
+ * @param maxTime      server-side time limit, {@code null} for none
+ * @param comment      attached to the command so it can be found in the profiler and logs, {@code null} for none
+ */
+public record AggregateOptions(Boolean allowDiskUse, int batchSize, Bson hint, Duration maxTime, String comment) {
+
+    private static final AggregateOptions DEFAULTS = new AggregateOptions(null, 0, null, null, null);
+
+    public AggregateOptions {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("batchSize must not be negative: " + batchSize);
+        }
+    }
+
+    public static AggregateOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public AggregateOptions withAllowDiskUse(boolean allowDiskUse) {
+        return new AggregateOptions(allowDiskUse, batchSize, hint, maxTime, comment);
+    }
+
+    public AggregateOptions withBatchSize(int batchSize) {
+        return new AggregateOptions(allowDiskUse, batchSize, hint, maxTime, comment);
+    }
+
+    public AggregateOptions withHint(Bson hint) {
+        return new AggregateOptions(allowDiskUse, batchSize, hint, maxTime, comment);
+    }
+
+    public AggregateOptions withMaxTime(Duration maxTime) {
+        return new AggregateOptions(allowDiskUse, batchSize, hint, maxTime, comment);
+    }
+
+    public AggregateOptions withComment(String comment) {
+        return new AggregateOptions(allowDiskUse, batchSize, hint, maxTime, comment);
+    }
+
+    <T> AggregateIterable<T> applyTo(AggregateIterable<T> iterable) {
+        if (allowDiskUse != null) {
+            iterable.allowDiskUse(allowDiskUse);
+        }
+        if (batchSize > 0) {
+            iterable.batchSize(batchSize);
+        }
+        if (hint != null) {
+            iterable.hint(hint);
+        }
+        if (maxTime != null) {
+            iterable.maxTime(maxTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (comment != null) {
+            iterable.comment(comment);
+        }
+        return iterable;
+    }
+}
@@ -0,0 +1,18 @@
+package dev.avorakh.tip.mongodb;
+
+import java.util.List;
+import org.bson.Document;
+
+/**
+ * One page of a {@link KeysetPager}.
+ *
+ * @param documents page documents, in sort order
+ * @param next      key to request the following page with, {@code null} on the last page
+ * @param total     number of documents matched by the whole pipeline, {@code null} when not counted
+ */
+public record AggregationPage(List<Document> documents, PageKey next, Long total) {
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,139 @@
+package dev.avorakh.tip.mongodb;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import dev.avorakh.tip.mongodb.instrumentation.NormalizedQuery;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+/**
+ * Size-bounded LRU cache of aggregation results with a per-entry time-to-live.
+ *
+ * <p>Entries are keyed on the namespace and the {@link NormalizedQuery} of the pipeline, so the same report over the
+ * same collection is served from memory no matter where its stages were built or in which order its filters list
+ * their fields. Stages whose key order matters, such as a compound {@code $sort}, are keyed in their order. To drop
+ * the results of a collection when it is written to, register the cache as a write listener:
+ * {@code crudOps.addWriteListener(cache::invalidate)}.
+ *
+ * <p>Cached documents are shared between callers and must not be modified.
+ */
+public class AggregationResultCache {
+
+    private final int maxEntries;
+    private final Duration defaultTtl;
+    private final Map<CacheKey, CacheEntry> entries;
+    private final Map<MongoNamespace, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public AggregationResultCache(int maxEntries, Duration defaultTtl) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.defaultTtl = defaultTtl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                boolean evict = size() > AggregationResultCache.this.maxEntries;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+    }
+
+    public List<Document> aggregate(MongoCollection<Document> collection, List<? extends Bson> pipeline) {
+        return aggregate(collection, pipeline, defaultTtl);
+    }
+
+    /**
+     * Returns the cached result of the pipeline, running it on a miss. Concurrent misses on the same key may run
+     * the pipeline more than once; a result computed while its collection was invalidated is not cached.
+     */
+    public List<Document> aggregate(
+            MongoCollection<Document> collection, List<? extends Bson> pipeline, Duration ttl) {
+        var key = CacheKey.of(collection, pipeline);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAtNanos() - now > 0) {
+                    hits.increment();
+                    return entry.documents();
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        long generation = generation(key.namespace()).get();
+        List<Document> documents = Collections.unmodifiableList(collection.aggregate(pipeline).into(new ArrayList<>()));
+        synchronized (entries) {
+            if (generation(key.namespace()).get() == generation) {
+                entries.put(key, new CacheEntry(documents, System.nanoTime() + ttl.toNanos()));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Drops every cached result computed over the namespace.
+     */
+    public void invalidate(MongoNamespace namespace) {
+        synchronized (entries) {
+            generation(namespace).incrementAndGet();
+            var iterator = entries.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().namespace().equals(namespace)) {
+                    iterator.remove();
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generations.values().forEach(AtomicLong::incrementAndGet);
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(
+                hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum(), size);
+    }
+
+    private AtomicLong generation(MongoNamespace namespace) {
+        return generations.computeIfAbsent(namespace, ignored -> new AtomicLong());
+    }
+
+    private record CacheKey(MongoNamespace namespace, NormalizedQuery pipeline) {
+        static CacheKey of(MongoCollection<Document> collection, List<? extends Bson> pipeline) {
+            return new CacheKey(
+                    collection.getNamespace(), NormalizedQuery.ofPipeline(pipeline, collection.getCodecRegistry()));
+        }
+    }
+
+    private record CacheEntry(List<Document> documents, long expiresAtNanos) {}
+}
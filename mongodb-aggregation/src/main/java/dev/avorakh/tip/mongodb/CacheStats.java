@@ -0,0 +1,19 @@
+package dev.avorakh.tip.mongodb;
+
+/**
+ * Point-in-time counters of an {@link AggregationResultCache}.
+ *
+ * @param hits          lookups served from memory
+ * @param misses        lookups that ran the pipeline
+ * @param evictions     entries dropped because the cache was full
+ * @param expirations   entries dropped because their time-to-live had passed
+ * @param invalidations entries dropped because their collection was written to
+ * @param size          entries currently cached
+ */
+public record CacheStats(long hits, long misses, long evictions, long expirations, long invalidations, int size) {
+
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+}
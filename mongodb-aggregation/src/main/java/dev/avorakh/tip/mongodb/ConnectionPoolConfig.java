@@ -0,0 +1,46 @@
+package dev.avorakh.tip.mongodb;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool tuning for a long-lived {@link com.mongodb.client.MongoClient}.
+ *
+ * @param maxSize       maximum number of connections per server
+ * @param minSize       number of connections kept open (and opened on warm-up)
+ * @param maxIdleTime   how long an idle connection is kept before it is closed
+ * @param maxWaitTime   how long a caller waits in the queue for a free connection
+ * @param maxConnecting how many connections a pool may establish concurrently
+ */
+public record ConnectionPoolConfig(
+        int maxSize, int minSize, Duration maxIdleTime, Duration maxWaitTime, int maxConnecting) {
+
+    public ConnectionPoolConfig {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        if (maxConnecting < 1) {
+            throw new IllegalArgumentException("maxConnecting must be positive: " + maxConnecting);
+        }
+    }
+
+    public static ConnectionPoolConfig defaults() {
+        return new ConnectionPoolConfig(50, 5, Duration.ofMinutes(5), Duration.ofSeconds(5), 4);
+    }
+
+    public MongoClientSettings toClientSettings(String mongoUri) {
+        return settingsBuilder(mongoUri).build();
+    }
+
+    public MongoClientSettings.Builder settingsBuilder(String mongoUri) {
+        return MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(mongoUri))
+                .applyToConnectionPoolSettings(pool -> pool.maxSize(maxSize)
+                        .minSize(minSize)
+                        .maxConnectionIdleTime(maxIdleTime.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxWaitTime(maxWaitTime.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnecting(maxConnecting));
+    }
+}
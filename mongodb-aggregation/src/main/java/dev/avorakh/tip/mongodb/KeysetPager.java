@@ -0,0 +1,150 @@
+package dev.avorakh.tip.mongodb;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.or;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Facet;
+import com.mongodb.client.model.Field;
+import com.mongodb.client.model.Sorts;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+/**
+ * Pages through the result of an aggregation by seeking past the last returned sort key instead of skipping.
+ *
+ * <p>Every page runs the filter stages, a {@code $match} on {@code (sortField, _id)} beyond the previous page, a
+ * sort on both and a {@code $limit}, so with an index on the filter fields followed by the sort field and
+ * {@code _id}, page N reads as few documents as page 1. The projection is applied to the page only; it has to be
+ * an inclusion projection, the pager adds the key of each document to it.
+ *
+ * <p>{@link #pageWithTotal} also counts all matching documents in the same round trip through {@code $facet}.
+ * Stages inside {@code $facet} cannot use indexes, so that page costs as much as the count; request the total
+ * with the first page only and keep it while scrolling.
+ */
+public class KeysetPager {
+
+    private static final String KEY_FIELD = "_pageKey";
+    private static final String PAGE_FACET = "page";
+    private static final String TOTAL_FACET = "total";
+
+    private final MongoCollection<Document> collection;
+    private final List<Bson> filterStages;
+    private final String sortField;
+    private final boolean descending;
+    private final BsonDocument projection;
+
+    /**
+     * @param filterStages stages selecting the documents to page through, they must not reorder them
+     * @param sortField    field the pages are sorted on
+     * @param descending   whether the pages are sorted from the highest sort key down
+     * @param projection   inclusion projection of the page documents, {@code null} returns whole documents
+     */
+    public KeysetPager(
+            MongoCollection<Document> collection,
+            List<? extends Bson> filterStages,
+            String sortField,
+            boolean descending,
+            Bson projection) {
+        this.collection = collection;
+        this.filterStages = List.copyOf(filterStages);
+        this.sortField = sortField;
+        this.descending = descending;
+        this.projection = projection == null ? null : keyed(projection, collection, sortField);
+    }
+
+    /**
+     * @param after key of the last document of the previous page, {@code null} for the first page
+     */
+    public AggregationPage page(PageKey after, int pageSize) {
+        List<Bson> pipeline = new ArrayList<>(filterStages);
+        pipeline.addAll(pageStages(after, pageSize));
+        return toPage(collection.aggregate(pipeline).into(new ArrayList<>()), pageSize, null);
+    }
+
+    /**
+     * Returns the page together with the number of documents passing the filter stages.
+     *
+     * @param after key of the last document of the previous page, {@code null} for the first page
+     */
+    public AggregationPage pageWithTotal(PageKey after, int pageSize) {
+        List<Bson> pipeline = new ArrayList<>(filterStages);
+        pipeline.add(Aggregates.facet(
+                new Facet(PAGE_FACET, pageStages(after, pageSize)), new Facet(TOTAL_FACET, Aggregates.count())));
+        Document facets = collection.aggregate(pipeline).first();
+        if (facets == null) {
+            return new AggregationPage(List.of(), null, 0L);
+        }
+        List<Document> totals = facets.getList(TOTAL_FACET, Document.class);
+        long total = totals.isEmpty() ? 0 : totals.getFirst().get("count", Number.class).longValue();
+        return toPage(facets.getList(PAGE_FACET, Document.class), pageSize, total);
+    }
+
+    private static BsonDocument keyed(Bson projection, MongoCollection<Document> collection, String sortField) {
+        BsonDocument keyed = projection
+                .toBsonDocument(Document.class, collection.getCodecRegistry())
+                .clone();
+        return keyed.append(KEY_FIELD, new BsonArray(List.of(new BsonString("$" + sortField), new BsonString("$_id"))));
+    }
+
+    /**
+     * @return the stages following the filter stages: seek, sort, a limit one past the page and the projection
+     */
+    List<Bson> pageStages(PageKey after, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        List<Bson> stages = new ArrayList<>(4);
+        if (after != null) {
+            stages.add(Aggregates.match(seek(after)));
+        }
+        stages.add(Aggregates.sort(
+                descending ? Sorts.descending(sortField, "_id") : Sorts.ascending(sortField, "_id")));
+        // one document more than the page tells whether there is a next page
+        stages.add(Aggregates.limit(pageSize + 1));
+        stages.add(projection == null ? Aggregates.set(keyField()) : Aggregates.project(projection));
+        return stages;
+    }
+
+    /**
+     * @return filter matching the documents beyond the key in page order, ties on the sort field broken by
+     *     {@code _id}
+     */
+    Bson seek(PageKey after) {
+        Bson beyondSortValue =
+                descending ? lt(sortField, after.sortValue()) : gt(sortField, after.sortValue());
+        Bson beyondId = descending ? lt("_id", after.id()) : gt("_id", after.id());
+        return or(beyondSortValue, and(eq(sortField, after.sortValue()), beyondId));
+    }
+
+    private Field<List<String>> keyField() {
+        return new Field<>(KEY_FIELD, List.of("$" + sortField, "$_id"));
+    }
+
+    /**
+     * Cuts off the document past the page and strips the key field, keeping the key of the last page document.
+     */
+    static AggregationPage toPage(List<Document> documents, int pageSize, Long total) {
+        boolean hasNext = documents.size() > pageSize;
+        List<Document> page = hasNext ? documents.subList(0, pageSize) : documents;
+        PageKey next = null;
+        for (Document document : page) {
+            List<?> key = document.getList(KEY_FIELD, Object.class);
+            if (key == null) {
+                throw new IllegalStateException("Page document lost its key field: " + document.toJson());
+            }
+            document.remove(KEY_FIELD);
+            next = new PageKey(key.get(0), key.get(1));
+        }
+        return new AggregationPage(List.copyOf(page), hasNext ? next : null, total);
+    }
+}
@@ -0,0 +1,221 @@
+package dev.avorakh.tip.mongodb;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.connection.ClusterDescription;
+import com.mongodb.connection.ServerDescription;
+import com.mongodb.event.ClusterDescriptionChangedEvent;
+import com.mongodb.event.ClusterListener;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.selector.ServerSelector;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.Document;
+
+/**
+ * Narrows the members eligible under the operation's read preference to those whose observed command round trip
+ * is within {@code threshold} of the fastest one.
+ *
+ * <p>The driver applies the selector after the read preference. Round trips are recorded per server from the
+ * command events of the client, as an exponentially weighted moving average, so a member slowed down by load is
+ * avoided, not only one that is far away. Only short request/response commands are recorded: finds, counts,
+ * distincts, writes and pings without {@code maxTimeMS}, {@code tailable} or {@code awaitData}. Aggregations,
+ * {@code getMore}s and change streams take as long as their work or their await time, not as the round trip.
+ * Members that only serve aggregations, such as the secondaries of an analytics route, are observed through
+ * {@link #startProbing}, which pings every member over the pool of the client every
+ * {@value #PROBE_INTERVAL_SECONDS} seconds.
+ *
+ * <p>Only members with an observation from the last {@value #MAX_AGE_SECONDS} seconds are compared, and excluded
+ * when slower than the threshold. A member without one stays eligible: its heartbeat round trip is not comparable
+ * to the command round trips of the others. Without any observation the candidates are returned as they are, and
+ * the driver's own heartbeat based local threshold applies. Install it on the client with {@link #applyTo}.
+ */
+public class LatencyAwareServerSelector implements ServerSelector, CommandListener, ClusterListener, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(LatencyAwareServerSelector.class.getName());
+
+    private static final double SMOOTHING = 0.2;
+    private static final long MAX_AGE_SECONDS = 30;
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(MAX_AGE_SECONDS);
+    private static final long PROBE_INTERVAL_SECONDS = 10;
+    private static final Document PING = new Document("ping", 1);
+    private static final Set<String> SHORT_COMMANDS =
+            Set.of("find", "count", "distinct", "insert", "update", "delete", "findAndModify", "ping");
+
+    private final long thresholdNanos;
+    private final Map<ServerAddress, Observation> observations = new ConcurrentHashMap<>();
+    private final Set<Integer> timedRequests = ConcurrentHashMap.newKeySet();
+    // set on the probing thread while it pings one member, so the selection picks that member
+    private final ThreadLocal<ServerAddress> probeTarget = new ThreadLocal<>();
+    private volatile ClusterDescription cluster;
+    private ScheduledExecutorService prober;
+
+    public LatencyAwareServerSelector(Duration threshold) {
+        if (threshold.isNegative()) {
+            throw new IllegalArgumentException("threshold must not be negative: " + threshold);
+        }
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    public MongoClientSettings.Builder applyTo(MongoClientSettings.Builder builder) {
+        return builder.applyToClusterSettings(settings -> settings.serverSelector(this).addClusterListener(this))
+                .addCommandListener(this);
+    }
+
+    /**
+     * Starts pinging every readable member through {@code client}, the client this selector is applied to.
+     */
+    public synchronized void startProbing(MongoClient client) {
+        if (prober != null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("latency-probe").daemon(true).factory());
+        prober.scheduleWithFixedDelay(() -> probe(client), 0, PROBE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public List<ServerDescription> select(ClusterDescription clusterDescription) {
+        List<ServerDescription> candidates = clusterDescription.getServerDescriptions();
+        ServerAddress target = probeTarget.get();
+        if (target != null) {
+            List<ServerDescription> probed = candidates.stream()
+                    .filter(server -> server.getAddress().equals(target))
+                    .toList();
+            return probed.isEmpty() ? candidates : probed;
+        }
+        if (candidates.size() < 2) {
+            return candidates;
+        }
+        long now = System.nanoTime();
+        double fastest = Double.MAX_VALUE;
+        for (ServerDescription server : candidates) {
+            Observation observation = observations.get(server.getAddress());
+            if (isFresh(observation, now)) {
+                fastest = Math.min(fastest, observation.averageNanos());
+            }
+        }
+        if (fastest == Double.MAX_VALUE) {
+            return candidates;
+        }
+        List<ServerDescription> selected = new ArrayList<>(candidates.size());
+        for (ServerDescription server : candidates) {
+            Observation observation = observations.get(server.getAddress());
+            if (!isFresh(observation, now) || observation.averageNanos() <= fastest + thresholdNanos) {
+                selected.add(server);
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public void clusterDescriptionChanged(ClusterDescriptionChangedEvent event) {
+        cluster = event.getNewDescription();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (isShortCommand(event.getCommandName(), event.getCommand())) {
+            timedRequests.add(event.getRequestId());
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        if (timedRequests.remove(event.getRequestId())) {
+            record(event.getConnectionDescription().getServerAddress(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        if (timedRequests.remove(event.getRequestId())) {
+            record(event.getConnectionDescription().getServerAddress(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * Returns the smoothed round trip observed per server.
+     */
+    public Map<ServerAddress, Duration> observedLatencies() {
+        Map<ServerAddress, Duration> latencies = new TreeMap<>((a, b) -> a.toString().compareTo(b.toString()));
+        observations.forEach((address, observation) ->
+                latencies.put(address, Duration.ofNanos((long) observation.averageNanos())));
+        return latencies;
+    }
+
+    /**
+     * Stops probing; the selector keeps using the observations of the client's commands.
+     */
+    @Override
+    public synchronized void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+
+    private void probe(MongoClient client) {
+        ClusterDescription description = cluster;
+        if (description == null) {
+            return;
+        }
+        MongoDatabase adminDb = client.getDatabase("admin");
+        for (ServerDescription server : description.getServerDescriptions()) {
+            if (!server.isOk() || !(server.isPrimary() || server.isSecondary())) {
+                continue;
+            }
+            probeTarget.set(server.getAddress());
+            try {
+                adminDb.runCommand(PING, ReadPreference.nearest());
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Latency probe of " + server.getAddress() + " failed", e);
+            } finally {
+                probeTarget.remove();
+            }
+        }
+    }
+
+    private void record(ServerAddress address, long elapsedNanos) {
+        long now = System.nanoTime();
+        observations.merge(
+                address,
+                new Observation(elapsedNanos, now),
+                (previous, sample) -> now - previous.atNanos() > MAX_AGE_NANOS
+                        ? sample
+                        : new Observation(
+                                previous.averageNanos() + SMOOTHING * (sample.averageNanos() - previous.averageNanos()),
+                                now));
+    }
+
+    private static boolean isFresh(Observation observation, long now) {
+        return observation != null && now - observation.atNanos() <= MAX_AGE_NANOS;
+    }
+
+    private static boolean isShortCommand(String commandName, BsonDocument command) {
+        return SHORT_COMMANDS.contains(commandName)
+                && !command.containsKey("maxTimeMS")
+                && !command.getBoolean("tailable", BsonBoolean.FALSE).getValue()
+                && !command.getBoolean("awaitData", BsonBoolean.FALSE).getValue();
+    }
+
+    private record Observation(double averageNanos, long atNanos) {}
+}
@@ -1,44 +1,154 @@
 package dev.avorakh.tip.mongodb;
 
-import static com.mongodb.client.model.Accumulators.avg;
-import static com.mongodb.client.model.Accumulators.sum;
-import static com.mongodb.client.model.Filters.*;
-import static com.mongodb.client.model.Projections.*;
-import static com.mongodb.client.model.Sorts.descending;
-import static com.mongodb.client.model.Sorts.orderBy;
-import static java.util.Arrays.asList;
-
-import com.mongodb.ConnectionString;
-import com.mongodb.MongoClientSettings;
 import com.mongodb.MongoException;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.Aggregates;
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Projections;
+import dev.avorakh.tip.mongodb.instrumentation.HistogramMetricsSink;
+import dev.avorakh.tip.mongodb.instrumentation.MongoInstrumentation;
+import dev.avorakh.tip.mongodb.instrumentation.QueryDiagnostics;
+import dev.avorakh.tip.mongodb.instrumentation.QueryDiagnosticsConfig;
+import dev.avorakh.tip.mongodb.instrumentation.QueryShapeStatistics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.conversions.Bson;
 
-public class MongoConnectionAggregator {
+/**
+ * Runs the {@code bank.accounts} aggregation reports on a single shared, pooled {@link MongoClient}.
+ *
+ * <p>The client is created once and kept for the lifetime of the aggregator, so every report reuses warm
+ * connections instead of paying for server discovery and a TCP/TLS handshake. Close the aggregator to release
+ * the pool.
+ *
+ * <p>Each report reads from the members its {@link ReadRoutingPolicy} selects. With {@code -Dmongodb.analytics=true}
+ * the main method sends the heavy reports to secondaries; try it on a local replica set such as
+ * {@code mongodb://localhost:27017,localhost:27018,localhost:27019/?replicaSet=rs0}.
+ */
+public class MongoConnectionAggregator implements AutoCloseable {
 
     private static final Logger LOGGER = Logger.getLogger(MongoConnectionAggregator.class.getName());
     private static final String URI_PROPERTY_KEY = "mongodb.uri";
+    private static final String INSTRUMENTATION_PROPERTY_KEY = "mongodb.instrumentation";
+
+    private static final String BANK_DB_NAME = "bank";
+    private static final String COLLECTION_NAME = "accounts";
+    private static final String ROUTING_PROPERTY_KEY = "mongodb.analytics";
+    private static final Duration LOCAL_THRESHOLD = Duration.ofMillis(15);
+    private static final Duration MAX_STALENESS = Duration.ofSeconds(120);
+    private static final int REPORT_PAGE_SIZE = 20;
 
     private final String mongoUri;
+    private final ConnectionPoolConfig poolConfig;
+    private final MongoClient client;
+    private final AggregationResultCache cache;
+    private final MongoInstrumentation instrumentation;
+    private final ReadRoutingPolicy routing;
+    private final LatencyAwareServerSelector serverSelector;
 
     public MongoConnectionAggregator(String mongoUri) {
+        this(mongoUri, ConnectionPoolConfig.defaults());
+    }
+
+    public MongoConnectionAggregator(String mongoUri, ConnectionPoolConfig poolConfig) {
+        this(mongoUri, poolConfig, null);
+    }
+
+    /**
+     * @param cache serves the account type summary and GBP balance reports from memory, {@code null} to always
+     *              run them on the server
+     */
+    public MongoConnectionAggregator(String mongoUri, ConnectionPoolConfig poolConfig, AggregationResultCache cache) {
+        this(mongoUri, poolConfig, cache, MongoInstrumentation.disabled());
+    }
+
+    public MongoConnectionAggregator(
+            String mongoUri,
+            ConnectionPoolConfig poolConfig,
+            AggregationResultCache cache,
+            MongoInstrumentation instrumentation) {
+        this(mongoUri, poolConfig, cache, instrumentation, ReadRoutingPolicy.primary());
+    }
+
+    /**
+     * @param routing read preference of each report; within it, the members with the lowest observed round trip
+     *                are preferred, see {@link LatencyAwareServerSelector}
+     */
+    public MongoConnectionAggregator(
+            String mongoUri,
+            ConnectionPoolConfig poolConfig,
+            AggregationResultCache cache,
+            MongoInstrumentation instrumentation,
+            ReadRoutingPolicy routing) {
         this.mongoUri = mongoUri;
+        this.poolConfig = poolConfig;
+        this.cache = cache;
+        this.instrumentation = instrumentation;
+        this.routing = routing;
+        this.serverSelector = new LatencyAwareServerSelector(LOCAL_THRESHOLD);
+        this.client = createClient();
+        serverSelector.startProbing(client);
+    }
+
+    /**
+     * Establishes the connection up front: the first ping pays for server discovery, the handshake and
+     * authentication, the following concurrent pings fill the pool up to {@link ConnectionPoolConfig#minSize()}.
+     *
+     * @return time spent warming up
+     */
+    public Duration warmUp() {
+        long start = System.nanoTime();
+        MongoDatabase adminDb = client.getDatabase("admin");
+        adminDb.runCommand(new Document("ping", 1));
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 1; i < poolConfig.minSize(); i++) {
+                executor.submit(() -> adminDb.runCommand(new Document("ping", 1)));
+            }
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        LOGGER.info("✅ Warmed up connection pool to MongoDB at: " + mongoUri + " in " + elapsed.toMillis() + " ms");
+        return elapsed;
+    }
+
+    public MongoCollection<Document> accounts() {
+        return client.getDatabase(BANK_DB_NAME).getCollection(COLLECTION_NAME);
+    }
+
+    /**
+     * Returns the accounts collection reading from the members the routing policy assigns to the pipeline.
+     */
+    public MongoCollection<Document> accounts(AccountPipeline pipeline) {
+        return accounts().withReadPreference(routing.preferenceFor(pipeline));
+    }
+
+    /**
+     * Returns the smoothed round trip observed per replica set member.
+     */
+    public Map<ServerAddress, Duration> observedLatencies() {
+        return serverSelector.observedLatencies();
     }
 
     public void matchStage() {
-        try (MongoClient client = createClient()) {
-            MongoDatabase db = client.getDatabase("bank");
-            MongoCollection<Document> accounts = db.getCollection("accounts");
+        try {
+            MongoCollection<Document> accounts = accounts(AccountPipeline.MATCH);
             matchStage(accounts);
             LOGGER.info("✅ Successfully aggregated to MongoDB at: " + mongoUri);
         } catch (MongoException ex) {
@@ -47,9 +157,8 @@ public class MongoConnectionAggregator {
     }
 
     public void matchAndGroupStages() {
-        try (MongoClient client = createClient()) {
-            MongoDatabase db = client.getDatabase("bank");
-            MongoCollection<Document> accounts = db.getCollection("accounts");
+        try {
+            MongoCollection<Document> accounts = accounts(AccountPipeline.MATCH_AND_GROUP);
             matchAndGroupStages(accounts);
             LOGGER.info("✅ Successfully aggregated (match and group) to MongoDB at: " + mongoUri);
         } catch (MongoException ex) {
@@ -58,9 +167,8 @@ public class MongoConnectionAggregator {
     }
 
     public void showAccountTypeSummary() {
-        try (MongoClient client = createClient()) {
-            MongoDatabase db = client.getDatabase("bank");
-            MongoCollection<Document> accounts = db.getCollection("accounts");
+        try {
+            MongoCollection<Document> accounts = accounts(AccountPipeline.ACCOUNT_TYPE_SUMMARY);
             showAccountTypeSummary(accounts);
             LOGGER.info("✅ Successfully aggregated (match and group) to MongoDB at: " + mongoUri);
         } catch (MongoException ex) {
@@ -69,9 +177,8 @@ public class MongoConnectionAggregator {
     }
 
     public void matchSortAndProjectStages() {
-        try (MongoClient client = createClient()) {
-            MongoDatabase db = client.getDatabase("bank");
-            MongoCollection<Document> accounts = db.getCollection("accounts");
+        try {
+            MongoCollection<Document> accounts = accounts(AccountPipeline.MATCH_SORT_AND_PROJECT);
             matchSortAndProjectStages(accounts);
             LOGGER.info("✅ Successfully aggregated (match sort and project) to MongoDB at: " + mongoUri);
         } catch (MongoException ex) {
@@ -80,9 +187,8 @@ public class MongoConnectionAggregator {
     }
 
     public void showGBPBalancesForCheckingAccounts() {
-        try (MongoClient client = createClient()) {
-            MongoDatabase db = client.getDatabase("bank");
-            MongoCollection<Document> accounts = db.getCollection("accounts");
+        try {
+            MongoCollection<Document> accounts = accounts(AccountPipeline.GBP_BALANCES_FOR_CHECKING);
             showGBPBalancesForCheckingAccounts(accounts);
             LOGGER.info("✅ Successfully aggregated (match sort and project) to MongoDB at: " + mongoUri);
         } catch (MongoException ex) {
@@ -90,70 +196,180 @@ public class MongoConnectionAggregator {
         }
     }
 
+    /**
+     * Runs the reports concurrently on the shared client, at most as many at a time as the pool has connections.
+     */
+    public Map<String, PipelineResult> runReports(Set<AccountPipeline> pipelines) {
+        return runReports(pipelines, poolConfig.maxSize());
+    }
+
+    public Map<String, PipelineResult> runReports(Set<AccountPipeline> pipelines, int maxConcurrency) {
+        Map<String, List<Bson>> named = new LinkedHashMap<>();
+        Map<String, ReadPreference> readPreferences = new HashMap<>();
+        pipelines.forEach(pipeline -> {
+            named.put(pipeline.name(), pipeline.stages());
+            readPreferences.put(pipeline.name(), routing.preferenceFor(pipeline));
+        });
+        return new ParallelPipelineExecutor(accounts(), readPreferences).execute(named, maxConcurrency);
+    }
+
+    /**
+     * Creates an incrementally maintained account type summary on the shared client; start it before reading.
+     */
+    public AccountTypeSummaryView accountTypeSummaryView() {
+        return new AccountTypeSummaryView(client);
+    }
+
     private MongoClient createClient() {
-        var settings = MongoClientSettings.builder()
-                .applyConnectionString(new ConnectionString(mongoUri))
-                .build();
-        return MongoClients.create(settings);
+        return instrumentation.attach(MongoClients.create(instrumentation
+                .applyTo(serverSelector.applyTo(poolConfig.settingsBuilder(mongoUri)))
+                .build()));
+    }
+
+    @Override
+    public void close() {
+        serverSelector.close();
+        client.close();
     }
 
     public static void main(String[] args) {
         var uri = Optional.ofNullable(System.getProperty(URI_PROPERTY_KEY)).orElseThrow();
-        var aggregator = new MongoConnectionAggregator(uri);
-        aggregator.matchStage();
-        aggregator.matchAndGroupStages();
-        aggregator.showAccountTypeSummary();
-        aggregator.matchSortAndProjectStages();
-        aggregator.showGBPBalancesForCheckingAccounts();
+        var metrics = new HistogramMetricsSink();
+        var diagnostics = new QueryDiagnostics(new QueryDiagnosticsConfig(1, 10, 1, false));
+        var shapeStatistics = new QueryShapeStatistics(1_000);
+        var instrumentation = Boolean.getBoolean(INSTRUMENTATION_PROPERTY_KEY)
+                ? MongoInstrumentation.of(metrics)
+                        .withQueryDiagnostics(diagnostics)
+                        .withQueryShapeStatistics(shapeStatistics)
+                : MongoInstrumentation.disabled();
+        var routing = Boolean.getBoolean(ROUTING_PROPERTY_KEY)
+                ? ReadRoutingPolicy.analytics(MAX_STALENESS)
+                : ReadRoutingPolicy.primary();
+        try (var aggregator = new MongoConnectionAggregator(
+                        uri, ConnectionPoolConfig.defaults(), null, instrumentation, routing);
+                diagnostics) {
+            aggregator.warmUp();
+            aggregator.runReports(EnumSet.allOf(AccountPipeline.class)).values().forEach(result -> {
+                if (result.isSuccess()) {
+                    LOGGER.info("✅ " + result.name() + " returned " + result.documents().size() + " documents in "
+                            + result.elapsed().toMillis() + " ms");
+                    result.documents().forEach(document -> LOGGER.info(document.toJson()));
+                } else {
+                    LOGGER.log(Level.SEVERE, "❌ " + result.name() + " failed", result.error());
+                }
+            });
+            var pager = aggregator.pager(AccountPipeline.GBP_BALANCES_FOR_CHECKING, Map.of());
+            var page = pager.pageWithTotal(null, REPORT_PAGE_SIZE);
+            LOGGER.info("✅ " + AccountPipeline.GBP_BALANCES_FOR_CHECKING + " has " + page.total() + " documents");
+            int pages = 1;
+            while (page.hasNext()) {
+                page = pager.page(page.next(), REPORT_PAGE_SIZE);
+                pages++;
+            }
+            LOGGER.info("✅ Paged through it in " + pages + " pages of " + REPORT_PAGE_SIZE);
+            aggregator.observedLatencies().forEach((server, latency) ->
+                    LOGGER.info("✅ " + server + " round trip " + latency.toMillis() + " ms"));
+        }
+        if (instrumentation.isEnabled()) {
+            LOGGER.info(metrics.report());
+            diagnostics.report().forEach(report -> LOGGER.info(report.toString()));
+            shapeStatistics.slowest(5).forEach(timing -> LOGGER.info("Slow query shape: " + timing));
+        }
     }
 
     private static void matchStage(MongoCollection<Document> accounts) {
-        Bson matchStage = Aggregates.match(eq("account_id", "MDB79101843"));
-        LOGGER.info("Display aggregation results");
-        accounts.aggregate(asList(matchStage)).forEach(document -> LOGGER.info(document.toJson()));
-        LOGGER.info("End aggregation results");
+        printResults(accounts, AccountPipeline.MATCH);
     }
 
     private static void matchAndGroupStages(MongoCollection<Document> accounts) {
-        Bson matchStage = Aggregates.match(eq("account_id", "MDB79101843"));
-        Bson groupStage =
-                Aggregates.group("$account_type", sum("total_balance", "$balance"), avg("average_balance", "$balance"));
-        LOGGER.info("Display aggregation results");
-        accounts.aggregate(asList(matchStage, groupStage)).forEach(document -> {
-            LOGGER.info(document.toJson());
-        });
-        LOGGER.info("End aggregation results");
+        printResults(accounts, AccountPipeline.MATCH_AND_GROUP);
     }
 
     public void showAccountTypeSummary(MongoCollection<Document> accounts) {
-        Bson matchStage = Aggregates.match(gt("balance", 1000));
-        Bson groupStage =
-                Aggregates.group("$account_type", sum("total_balance", "$balance"), avg("average_balance", "$balance"));
-        LOGGER.info("Display aggregation results");
-        accounts.aggregate(asList(matchStage, groupStage)).forEach(document -> LOGGER.info(document.toJson()));
-        LOGGER.info("End aggregation results");
+        printResults(report(accounts, AccountPipeline.ACCOUNT_TYPE_SUMMARY));
     }
 
     private static void matchSortAndProjectStages(MongoCollection<Document> accounts) {
-        Bson matchStage = Aggregates.match(and(Filters.gt("balance", 1500), eq("account_type", "checking")));
-        Bson sortStage = Aggregates.sort(orderBy(descending("balance")));
-        Bson projectStage = Aggregates.project(fields(
-                include("account_id", "account_type", "balance"),
-                Projections.computed("euro_balance", new Document("$divide", asList("$balance", 1.20F))),
-                excludeId()));
+        printResults(accounts, AccountPipeline.MATCH_SORT_AND_PROJECT);
+    }
+
+    public void showGBPBalancesForCheckingAccounts(MongoCollection<Document> accounts) {
+        printResults(report(accounts, AccountPipeline.GBP_BALANCES_FOR_CHECKING));
+    }
+
+    /**
+     * Returns the report's documents, from the result cache when the aggregator has one.
+     */
+    public List<Document> report(AccountPipeline pipeline) {
+        return report(accounts(pipeline), pipeline);
+    }
+
+    /**
+     * Returns the report's documents for the given parameters, the others keep their defaults. Served from the
+     * result cache when the aggregator has one.
+     */
+    public List<Document> report(AccountPipeline pipeline, Map<String, ?> parameters) {
+        List<Bson> stages = pipeline.stages(parameters);
+        if (cache == null) {
+            return accounts(pipeline).aggregate(stages).into(new ArrayList<>());
+        }
+        return cache.aggregate(accounts(pipeline), stages);
+    }
+
+    /**
+     * Runs the report with the given parameters and options, bypassing the result cache.
+     */
+    public List<Document> report(AccountPipeline pipeline, Map<String, ?> parameters, AggregateOptions options) {
+        return options.applyTo(accounts(pipeline).aggregate(pipeline.stages(parameters)))
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Creates a keyset pager over a report that declares its paging stages, reading from the members routed to
+     * the report and bypassing the result cache.
+     */
+    public KeysetPager pager(AccountPipeline pipeline, Map<String, ?> parameters) {
+        return pipeline.pager(accounts(pipeline), parameters);
+    }
+
+    /**
+     * Streams the report's documents undecoded to the channel, back to back as BSON, bypassing the result cache.
+     * Fields of a {@link RawBsonDocument} can still be read lazily with {@link RawBsonDocument#get}.
+     *
+     * @return number of bytes written
+     */
+    public long writeReport(AccountPipeline pipeline, WritableByteChannel channel) throws IOException {
+        long written = 0;
+        try (MongoCursor<RawBsonDocument> cursor = accounts(pipeline)
+                .withDocumentClass(RawBsonDocument.class)
+                .aggregate(pipeline.stages())
+                .iterator()) {
+            while (cursor.hasNext()) {
+                ByteBuffer buffer = cursor.next().getByteBuffer().asNIO();
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+            }
+        }
+        return written;
+    }
+
+    private List<Document> report(MongoCollection<Document> accounts, AccountPipeline pipeline) {
+        if (cache == null) {
+            return accounts.aggregate(pipeline.stages()).into(new ArrayList<>());
+        }
+        return cache.aggregate(accounts, pipeline.stages());
+    }
+
+    private static void printResults(List<Document> documents) {
         LOGGER.info("Display aggregation results");
-        accounts.aggregate(asList(matchStage, sortStage, projectStage))
-                .forEach(document -> LOGGER.info(document.toJson()));
+        documents.forEach(document -> LOGGER.info(document.toJson()));
         LOGGER.info("End aggregation results");
     }
 
-    public void showGBPBalancesForCheckingAccounts(MongoCollection<Document> accounts) {
-        Bson matchStage = Aggregates.match(and(eq("account_type", "checking"), gt("balance", 1500)));
-        Bson sortStage = Aggregates.sort(orderBy(descending("balance")));
-        Bson projectStage = Aggregates.project(fields(include("account_id", "account_type", "balance"), excludeId()));
+    private static void printResults(MongoCollection<Document> accounts, AccountPipeline pipeline) {
         LOGGER.info("Display aggregation results");
-        accounts.aggregate(asList(matchStage, sortStage, projectStage))
-                .forEach(document -> LOGGER.info(document.toJson()));
+        accounts.aggregate(pipeline.stages()).forEach(document -> LOGGER.info(document.toJson()));
         LOGGER.info("End aggregation results");
     }
 }
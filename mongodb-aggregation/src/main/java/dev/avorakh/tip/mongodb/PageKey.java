@@ -0,0 +1,10 @@
+package dev.avorakh.tip.mongodb;
+
+/**
+ * Position after the last document of a page of a {@link KeysetPager}: its sort key and {@code _id}, which breaks
+ * ties between equal sort keys.
+ *
+ * @param sortValue value of the sort field of the last document
+ * @param id        {@code _id} of the last document
+ */
+public record PageKey(Object sortValue, Object id) {}
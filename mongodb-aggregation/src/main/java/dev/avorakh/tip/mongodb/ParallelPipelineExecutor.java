@@ -0,0 +1,103 @@
+package dev.avorakh.tip.mongodb;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoCollection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+/**
+ * Runs independent aggregation pipelines concurrently, one virtual thread per pipeline, so the wall time of a
+ * set of reports is that of the slowest one instead of the sum of all.
+ *
+ * <p>All pipelines share the collection's client; the {@code maxConcurrency} of a call caps how many of them
+ * hold a pooled connection at the same time, so a large batch of reports cannot exhaust the connection pool.
+ * Pipelines with a read preference of their own run on the members it selects, the others on the collection's.
+ */
+public class ParallelPipelineExecutor {
+
+    private final MongoCollection<Document> collection;
+    private final Map<String, ReadPreference> readPreferences;
+
+    public ParallelPipelineExecutor(MongoCollection<Document> collection) {
+        this(collection, Map.of());
+    }
+
+    /**
+     * @param readPreferences read preference by pipeline name
+     */
+    public ParallelPipelineExecutor(MongoCollection<Document> collection, Map<String, ReadPreference> readPreferences) {
+        this.collection = collection;
+        this.readPreferences = Map.copyOf(readPreferences);
+    }
+
+    /**
+     * Runs the pipelines and waits for all of them. A failing pipeline does not affect the others, its error is
+     * reported in its {@link PipelineResult}.
+     *
+     * @param pipelines      pipelines by name
+     * @param maxConcurrency maximum number of pipelines running at the same time
+     * @return results by pipeline name, in the iteration order of {@code pipelines}
+     */
+    public Map<String, PipelineResult> execute(Map<String, List<Bson>> pipelines, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        var permits = new Semaphore(maxConcurrency);
+        Map<String, Future<PipelineResult>> futures = new LinkedHashMap<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            pipelines.forEach((name, stages) ->
+                    futures.put(name, executor.submit(() -> run(name, stages, permits))));
+        }
+        Map<String, PipelineResult> results = new LinkedHashMap<>();
+        futures.forEach((name, future) -> results.put(name, resultOf(name, future)));
+        return results;
+    }
+
+    private PipelineResult run(String name, List<Bson> stages, Semaphore permits) throws InterruptedException {
+        long submitted = System.nanoTime();
+        permits.acquire();
+        long started = System.nanoTime();
+        try {
+            List<Document> documents = collectionFor(name).aggregate(stages).into(new ArrayList<>());
+            return new PipelineResult(name, documents, between(submitted, started), since(started), null);
+        } catch (RuntimeException e) {
+            return new PipelineResult(name, List.of(), between(submitted, started), since(started), e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private MongoCollection<Document> collectionFor(String name) {
+        ReadPreference readPreference = readPreferences.get(name);
+        return readPreference == null ? collection : collection.withReadPreference(readPreference);
+    }
+
+    private static PipelineResult resultOf(String name, Future<PipelineResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new PipelineResult(name, List.of(), Duration.ZERO, Duration.ZERO, new IllegalStateException(e));
+        } catch (ExecutionException e) {
+            return new PipelineResult(
+                    name, List.of(), Duration.ZERO, Duration.ZERO, new IllegalStateException(e.getCause()));
+        }
+    }
+
+    private static Duration between(long startNanos, long endNanos) {
+        return Duration.ofNanos(endNanos - startNanos);
+    }
+
+    private static Duration since(long startNanos) {
+        return between(startNanos, System.nanoTime());
+    }
+}
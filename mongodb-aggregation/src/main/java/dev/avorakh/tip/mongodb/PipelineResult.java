@@ -0,0 +1,22 @@
+package dev.avorakh.tip.mongodb;
+
+import java.time.Duration;
+import java.util.List;
+import org.bson.Document;
+
+/**
+ * Outcome of one named pipeline run by {@link ParallelPipelineExecutor}.
+ *
+ * @param name      pipeline name
+ * @param documents result documents, empty when the pipeline failed
+ * @param queued    time spent waiting for a concurrency permit
+ * @param elapsed   time spent running the pipeline and draining its cursor
+ * @param error     failure of the pipeline, {@code null} on success
+ */
+public record PipelineResult(
+        String name, List<Document> documents, Duration queued, Duration elapsed, RuntimeException error) {
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
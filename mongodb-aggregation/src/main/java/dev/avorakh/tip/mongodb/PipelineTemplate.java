@@ -0,0 +1,170 @@
+package dev.avorakh.tip.mongodb;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import dev.avorakh.tip.mongodb.instrumentation.PipelineRewriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonBoolean;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+/**
+ * An aggregation pipeline with named placeholders, rendered to BSON once.
+ *
+ * <p>Placeholders are created with {@link #param(String)} and used wherever a value goes, e.g.
+ * {@code Aggregates.match(Filters.eq("account_id", PipelineTemplate.param("accountId")))}. Binding a template only
+ * rebuilds the documents on the path from a stage to its placeholders; stages and sub-documents without
+ * placeholders are shared between executions. Templates are immutable and thread-safe. {@code $match} stages are
+ * moved ahead of the sorts and projections they do not depend on, see {@link PipelineRewriter}.
+ */
+public final class PipelineTemplate {
+
+    private static final String PARAM_KEY = "$param";
+
+    private final String name;
+    private final List<Slot> stages;
+    private final Set<String> parameters;
+
+    private PipelineTemplate(String name, List<Slot> stages, Set<String> parameters) {
+        this.name = name;
+        this.stages = stages;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return a placeholder for the parameter with this name
+     */
+    public static BsonDocument param(String name) {
+        return new BsonDocument(PARAM_KEY, new BsonString(name));
+    }
+
+    public static PipelineTemplate of(String name, List<? extends Bson> stages) {
+        CodecRegistry registry = MongoClientSettings.getDefaultCodecRegistry();
+        Set<String> parameters = new LinkedHashSet<>();
+        List<Slot> compiled = new ArrayList<>(stages.size());
+        PipelineRewriter.matchFirst(stages, registry).forEach(stage -> compiled.add(compile(stage, parameters)));
+        return new PipelineTemplate(name, List.copyOf(compiled), Collections.unmodifiableSet(parameters));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Set<String> parameters() {
+        return parameters;
+    }
+
+    /**
+     * Renders the pipeline with the values of every parameter. Values are Java values the default codec registry
+     * can encode, or {@link BsonValue}s.
+     *
+     * @throws IllegalArgumentException when a parameter has no value or a value has no parameter
+     */
+    public List<BsonDocument> bind(Map<String, ?> values) {
+        if (!values.keySet().equals(parameters)) {
+            throw new IllegalArgumentException(
+                    "Pipeline " + name + " takes parameters " + parameters + ", got " + values.keySet());
+        }
+        Map<String, BsonValue> bsonValues = new LinkedHashMap<>();
+        values.forEach((parameter, value) -> bsonValues.put(parameter, toBson(value)));
+        List<BsonDocument> bound = new ArrayList<>(stages.size());
+        stages.forEach(stage -> bound.add(stage.bind(bsonValues).asDocument()));
+        return bound;
+    }
+
+    /**
+     * Binds the pipeline and prepares it on the collection with the options; the aggregation runs when the
+     * iterable is iterated.
+     */
+    public <T> AggregateIterable<T> aggregate(
+            MongoCollection<T> collection, Map<String, ?> values, AggregateOptions options) {
+        return options.applyTo(collection.aggregate(bind(values)));
+    }
+
+    private static BsonValue toBson(Object value) {
+        return switch (value) {
+            case null -> BsonNull.VALUE;
+            case BsonValue bsonValue -> bsonValue;
+            case String string -> new BsonString(string);
+            case Integer number -> new BsonInt32(number);
+            case Long number -> new BsonInt64(number);
+            case Double number -> new BsonDouble(number);
+            case Float number -> new BsonDouble(number);
+            case Boolean bool -> BsonBoolean.valueOf(bool);
+            default -> new Document("value", value).toBsonDocument().get("value");
+        };
+    }
+
+    private static Slot compile(BsonValue value, Set<String> parameters) {
+        if (value.isDocument()) {
+            BsonDocument document = value.asDocument();
+            if (document.size() == 1 && document.get(PARAM_KEY) instanceof BsonString parameter) {
+                parameters.add(parameter.getValue());
+                return new Placeholder(parameter.getValue());
+            }
+            Map<String, Slot> entries = new LinkedHashMap<>();
+            document.forEach((key, child) -> entries.put(key, compile(child, parameters)));
+            return entries.values().stream().allMatch(Constant.class::isInstance)
+                    ? new Constant(document)
+                    : new DocumentSlot(entries);
+        }
+        if (value.isArray()) {
+            List<Slot> items = new ArrayList<>();
+            value.asArray().forEach(child -> items.add(compile(child, parameters)));
+            return items.stream().allMatch(Constant.class::isInstance) ? new Constant(value) : new ArraySlot(items);
+        }
+        return new Constant(value);
+    }
+
+    private sealed interface Slot permits Constant, Placeholder, DocumentSlot, ArraySlot {
+        BsonValue bind(Map<String, BsonValue> values);
+    }
+
+    private record Constant(BsonValue value) implements Slot {
+        @Override
+        public BsonValue bind(Map<String, BsonValue> values) {
+            return value;
+        }
+    }
+
+    private record Placeholder(String name) implements Slot {
+        @Override
+        public BsonValue bind(Map<String, BsonValue> values) {
+            return values.get(name);
+        }
+    }
+
+    private record DocumentSlot(Map<String, Slot> entries) implements Slot {
+        @Override
+        public BsonValue bind(Map<String, BsonValue> values) {
+            var document = new BsonDocument();
+            entries.forEach((key, slot) -> document.append(key, slot.bind(values)));
+            return document;
+        }
+    }
+
+    private record ArraySlot(List<Slot> items) implements Slot {
+        @Override
+        public BsonValue bind(Map<String, BsonValue> values) {
+            var array = new BsonArray();
+            items.forEach(slot -> array.add(slot.bind(values)));
+            return array;
+        }
+    }
+}
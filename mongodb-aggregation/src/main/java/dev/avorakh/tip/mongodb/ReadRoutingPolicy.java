@@ -0,0 +1,87 @@
+package dev.avorakh.tip.mongodb;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read preference of each {@link AccountPipeline}, so heavy reports can run on secondaries instead of competing
+ * with transactional writes on the primary.
+ *
+ * @param defaultPreference read preference of the pipelines without a route of their own
+ * @param routes            read preference by pipeline
+ */
+public record ReadRoutingPolicy(ReadPreference defaultPreference, Map<AccountPipeline, ReadPreference> routes) {
+
+    /**
+     * Smallest staleness bound the server accepts: the heartbeat frequency plus the idle write period.
+     */
+    public static final Duration MIN_MAX_STALENESS = Duration.ofSeconds(90);
+
+    private static final TagSet ANALYTICS_NODES = new TagSet(new Tag("nodeType", "ANALYTICS"));
+
+    public ReadRoutingPolicy {
+        routes = Map.copyOf(routes);
+    }
+
+    /**
+     * Runs every pipeline on the primary.
+     */
+    public static ReadRoutingPolicy primary() {
+        return new ReadRoutingPolicy(ReadPreference.primary(), Map.of());
+    }
+
+    /**
+     * Keeps the single account lookups on the primary and sends the grouping and sorting reports to analytics
+     * nodes, see {@link #analyticsNodes(Duration)}.
+     */
+    public static ReadRoutingPolicy analytics(Duration maxStaleness) {
+        ReadPreference analytics = analyticsNodes(maxStaleness);
+        Map<AccountPipeline, ReadPreference> routes = new EnumMap<>(AccountPipeline.class);
+        routes.put(AccountPipeline.ACCOUNT_TYPE_SUMMARY, analytics);
+        routes.put(AccountPipeline.MATCH_SORT_AND_PROJECT, analytics);
+        routes.put(AccountPipeline.GBP_BALANCES_FOR_CHECKING, analytics);
+        return new ReadRoutingPolicy(ReadPreference.primary(), routes);
+    }
+
+    /**
+     * Secondaries tagged {@code nodeType: ANALYTICS}, as Atlas tags its analytics nodes, falling back to any
+     * secondary and then to the primary, skipping secondaries lagging more than {@code maxStaleness} behind.
+     */
+    public static ReadPreference analyticsNodes(Duration maxStaleness) {
+        return ReadPreference.secondaryPreferred(
+                List.of(ANALYTICS_NODES, new TagSet()), staleness(maxStaleness), TimeUnit.SECONDS);
+    }
+
+    public static ReadPreference secondaryPreferred(Duration maxStaleness) {
+        return ReadPreference.secondaryPreferred(staleness(maxStaleness), TimeUnit.SECONDS);
+    }
+
+    public static ReadPreference nearest(Duration maxStaleness) {
+        return ReadPreference.nearest(staleness(maxStaleness), TimeUnit.SECONDS);
+    }
+
+    public ReadRoutingPolicy withRoute(AccountPipeline pipeline, ReadPreference preference) {
+        Map<AccountPipeline, ReadPreference> updated = new EnumMap<>(AccountPipeline.class);
+        updated.putAll(routes);
+        updated.put(pipeline, preference);
+        return new ReadRoutingPolicy(defaultPreference, updated);
+    }
+
+    public ReadPreference preferenceFor(AccountPipeline pipeline) {
+        return routes.getOrDefault(pipeline, defaultPreference);
+    }
+
+    private static long staleness(Duration maxStaleness) {
+        if (maxStaleness.compareTo(MIN_MAX_STALENESS) < 0) {
+            throw new IllegalArgumentException(
+                    "maxStaleness must be at least " + MIN_MAX_STALENESS + ": " + maxStaleness);
+        }
+        return maxStaleness.toSeconds();
+    }
+}
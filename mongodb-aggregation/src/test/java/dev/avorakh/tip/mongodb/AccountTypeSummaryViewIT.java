@@ -0,0 +1,114 @@
+package dev.avorakh.tip.mongodb;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.set;
+import static com.mongodb.client.model.Updates.unset;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the view against a disposable single-node replica set, skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AccountTypeSummaryViewIT {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private MongoCollection<Document> accounts;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl());
+    }
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+    @BeforeEach
+    void createAccounts() {
+        client.getDatabase("bank").drop();
+        client.getDatabase("bank").createCollection("accounts");
+        AccountTypeSummaryView.enablePreImages(client);
+        accounts = client.getDatabase("bank").getCollection("accounts");
+        accounts.insertMany(List.of(
+                account(1, "checking", 2000),
+                account(2, "savings", 1500),
+                account(3, "checking", 500),
+                new Document("_id", 4).append("balance", 5000),
+                account(5, null, 3000),
+                account(6, 42, 4000)));
+    }
+
+    @Test
+    void seedLeavesOutAccountsWithoutAStringType() {
+        try (var view = new AccountTypeSummaryView(client)) {
+            view.start();
+
+            assertEquals(
+                    Map.of("checking", summary("checking", 1, 2000), "savings", summary("savings", 1, 1500)),
+                    view.summaries());
+        }
+    }
+
+    @Test
+    void deltasAgreeWithAFreshSeed() throws InterruptedException {
+        Map<String, AccountTypeSummary> expected =
+                Map.of("checking", summary("checking", 2, 5000), "savings", summary("savings", 2, 8000));
+        try (var view = new AccountTypeSummaryView(client)) {
+            view.start();
+
+            accounts.insertOne(account(7, "checking", 3000));
+            accounts.insertOne(new Document("_id", 8).append("balance", 6000));
+            accounts.updateOne(eq("_id", 5), set("account_type", "savings"));
+            accounts.updateOne(eq("_id", 6), set("balance", 9000));
+            accounts.updateOne(eq("_id", 2), unset("account_type"));
+            accounts.updateOne(eq("_id", 4), set("account_type", "savings"));
+            accounts.deleteOne(eq("_id", 3));
+
+            awaitSummaries(view, expected);
+        }
+        client.getDatabase("bank").getCollection("account_type_summary_checkpoints").drop();
+        try (var reseeded = new AccountTypeSummaryView(client)) {
+            reseeded.start();
+
+            assertEquals(expected, reseeded.summaries());
+        }
+    }
+
+    private static void awaitSummaries(AccountTypeSummaryView view, Map<String, AccountTypeSummary> expected)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!expected.equals(view.summaries()) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, view.summaries());
+    }
+
+    private static Document account(int id, Object accountType, int balance) {
+        return new Document("_id", id).append("account_type", accountType).append("balance", balance);
+    }
+
+    private static AccountTypeSummary summary(String accountType, long count, double totalBalance) {
+        return new AccountTypeSummary(accountType, count, totalBalance);
+    }
+}
@@ -0,0 +1,95 @@
+package dev.avorakh.tip.mongodb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+class KeysetPagerTest {
+
+    private static final ObjectId LAST_ID = new ObjectId("64b7f2a1c2d3e4f5a6b7c8d9");
+
+    @Test
+    void descendingSeekContinuesBelowTheKey() {
+        var pager = new KeysetPager(null, List.of(), "balance", true, null);
+
+        assertEquals(
+                BsonDocument.parse("{$or: [{balance: {$lt: 1500.5}},"
+                        + " {$and: [{balance: 1500.5}, {_id: {$lt: {$oid: '64b7f2a1c2d3e4f5a6b7c8d9'}}}]}]}"),
+                pager.seek(new PageKey(1500.5, LAST_ID)).toBsonDocument());
+    }
+
+    @Test
+    void ascendingSeekContinuesAboveTheKey() {
+        var pager = new KeysetPager(null, List.of(), "account_id", false, null);
+
+        assertEquals(
+                BsonDocument.parse("{$or: [{account_id: {$gt: 'MDB1'}},"
+                        + " {$and: [{account_id: 'MDB1'}, {_id: {$gt: {$oid: '64b7f2a1c2d3e4f5a6b7c8d9'}}}]}]}"),
+                pager.seek(new PageKey("MDB1", LAST_ID)).toBsonDocument());
+    }
+
+    @Test
+    void seekKeepsTheTypeOfTheSortValue() {
+        var pager = new KeysetPager(null, List.of(), "balance", true, null);
+
+        assertEquals(
+                BsonDocument.parse("{$or: [{balance: {$lt: {$numberLong: '10'}}},"
+                        + " {$and: [{balance: {$numberLong: '10'}}, {_id: {$lt: 3}}]}]}"),
+                pager.seek(new PageKey(10L, 3)).toBsonDocument());
+    }
+
+    @Test
+    void pageStagesSeekSortOnTheKeyAndReadOneDocumentMore() {
+        var pager = new KeysetPager(null, List.of(), "balance", true, null);
+
+        assertEquals(
+                List.of(
+                        BsonDocument.parse("{$sort: {balance: -1, _id: -1}}"),
+                        BsonDocument.parse("{$limit: 3}"),
+                        BsonDocument.parse("{$set: {_pageKey: ['$balance', '$_id']}}")),
+                render(pager.pageStages(null, 2)));
+        assertEquals(
+                pager.seek(new PageKey(10, 3)).toBsonDocument(),
+                render(pager.pageStages(new PageKey(10, 3), 2)).getFirst().getDocument("$match"));
+        assertThrows(IllegalArgumentException.class, () -> pager.pageStages(null, 0));
+    }
+
+    @Test
+    void fullPageKeepsTheKeyOfItsLastDocument() {
+        AggregationPage page = KeysetPager.toPage(List.of(keyed(1, 300), keyed(2, 200), keyed(3, 100)), 2, 7L);
+
+        assertEquals(List.of(new Document("_id", 1), new Document("_id", 2)), page.documents());
+        assertEquals(new PageKey(200, 2), page.next());
+        assertEquals(7L, page.total());
+    }
+
+    @Test
+    void lastPageHasNoNextKey() {
+        AggregationPage page = KeysetPager.toPage(List.of(keyed(1, 300), keyed(2, 200)), 2, null);
+
+        assertEquals(2, page.documents().size());
+        assertNull(page.next());
+        assertNull(page.total());
+    }
+
+    @Test
+    void documentWithoutKeyIsRejected() {
+        assertThrows(
+                IllegalStateException.class, () -> KeysetPager.toPage(List.of(new Document("_id", 1)), 2, null));
+    }
+
+    private static Document keyed(int id, int balance) {
+        return new Document("_id", id).append("_pageKey", List.of(balance, id));
+    }
+
+    private static List<BsonDocument> render(List<Bson> stages) {
+        return stages.stream().map(Bson::toBsonDocument).toList();
+    }
+}
@@ -0,0 +1,109 @@
+package dev.avorakh.tip.mongodb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterConnectionMode;
+import com.mongodb.connection.ClusterDescription;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ClusterType;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerConnectionState;
+import com.mongodb.connection.ServerDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.connection.ServerType;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+class LatencyAwareServerSelectorTest {
+
+    private static final ClusterId CLUSTER_ID = new ClusterId();
+    private static final ServerDescription PRIMARY = member("primary", ServerType.REPLICA_SET_PRIMARY);
+    private static final ServerDescription NEAR = member("near", ServerType.REPLICA_SET_SECONDARY);
+    private static final ServerDescription SLOW = member("slow", ServerType.REPLICA_SET_SECONDARY);
+    private static final ClusterDescription REPLICA_SET = new ClusterDescription(
+            ClusterConnectionMode.MULTIPLE, ClusterType.REPLICA_SET, List.of(PRIMARY, NEAR, SLOW));
+
+    private final LatencyAwareServerSelector selector = new LatencyAwareServerSelector(Duration.ofMillis(15));
+    private int requestId;
+
+    @Test
+    void slowMemberIsAvoided() {
+        ping(PRIMARY, 4);
+        ping(NEAR, 2);
+        ping(SLOW, 80);
+
+        assertEquals(List.of(PRIMARY, NEAR), selector.select(REPLICA_SET));
+    }
+
+    @Test
+    void memberWithoutObservationStaysEligible() {
+        ping(PRIMARY, 2);
+        ping(SLOW, 80);
+
+        assertEquals(List.of(PRIMARY, NEAR), selector.select(REPLICA_SET));
+    }
+
+    @Test
+    void candidatesAreKeptWithoutObservations() {
+        assertEquals(List.of(PRIMARY, NEAR, SLOW), selector.select(REPLICA_SET));
+    }
+
+    @Test
+    void longRunningCommandsAreNotObserved() {
+        ping(NEAR, 2);
+        command(SLOW, "aggregate", "{aggregate: 'accounts', pipeline: [], cursor: {}}", 900);
+        command(SLOW, "getMore", "{getMore: {$numberLong: '1'}, collection: 'accounts'}", 900);
+        command(SLOW, "find", "{find: 'accounts', maxTimeMS: 1000}", 900);
+
+        assertEquals(List.of(PRIMARY, NEAR, SLOW), selector.select(REPLICA_SET));
+    }
+
+    @Test
+    void smoothedRoundTripsAreReported() {
+        ping(NEAR, 10);
+        ping(NEAR, 20);
+
+        assertEquals(Duration.ofMillis(12), selector.observedLatencies().get(NEAR.getAddress()));
+    }
+
+    @Test
+    void rejectsNegativeThreshold() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyAwareServerSelector(Duration.ofMillis(-1)));
+    }
+
+    private void ping(ServerDescription server, long millis) {
+        command(server, "ping", "{ping: 1}", millis);
+    }
+
+    private void command(ServerDescription server, String name, String command, long millis) {
+        int requestId = ++this.requestId;
+        var connection = new ConnectionDescription(new ServerId(CLUSTER_ID, server.getAddress()));
+        selector.commandStarted(
+                new CommandStartedEvent(null, 1, requestId, connection, "admin", name, BsonDocument.parse(command)));
+        selector.commandSucceeded(new CommandSucceededEvent(
+                null,
+                1,
+                requestId,
+                connection,
+                "admin",
+                name,
+                BsonDocument.parse("{ok: 1}"),
+                TimeUnit.MILLISECONDS.toNanos(millis)));
+    }
+
+    private static ServerDescription member(String host, ServerType type) {
+        return ServerDescription.builder()
+                .address(new ServerAddress(host, 27017))
+                .state(ServerConnectionState.CONNECTED)
+                .type(type)
+                .roundTripTime(1, TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package dev.avorakh.tip.mongodb;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static dev.avorakh.tip.mongodb.PipelineTemplate.param;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Sorts;
+import dev.avorakh.tip.mongodb.instrumentation.NormalizedQuery;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+class PipelineTemplateTest {
+
+    private static final PipelineTemplate TEMPLATE = PipelineTemplate.of(
+            "accounts",
+            List.of(
+                    Aggregates.match(and(eq("account_type", param("accountType")), gt("balance", param("minBalance")))),
+                    Aggregates.sort(Sorts.descending("balance")),
+                    Aggregates.limit(10)));
+
+    @Test
+    void collectsParametersInStageOrder() {
+        assertEquals(List.of("accountType", "minBalance"), List.copyOf(TEMPLATE.parameters()));
+        assertEquals(Set.of(), PipelineTemplate.of("plain", List.of(Aggregates.limit(1))).parameters());
+    }
+
+    @Test
+    void bindsValuesIntoThePlaceholders() {
+        List<BsonDocument> bound = TEMPLATE.bind(Map.of("accountType", "checking", "minBalance", 1500));
+
+        assertEquals(
+                render(
+                        Aggregates.match(and(eq("account_type", "checking"), gt("balance", 1500))),
+                        Aggregates.sort(Sorts.descending("balance")),
+                        Aggregates.limit(10)),
+                bound);
+    }
+
+    @Test
+    void bindsBsonValuesAndNullAsGiven() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("accountType", null);
+        values.put("minBalance", new BsonInt64(7));
+
+        BsonDocument match = TEMPLATE.bind(values).getFirst().getDocument("$match");
+
+        assertEquals(
+                BsonDocument.parse("{$and: [{account_type: null}, {balance: {$gt: {$numberLong: '7'}}}]}"), match);
+    }
+
+    @Test
+    void sharesStagesWithoutPlaceholders() {
+        List<BsonDocument> first = TEMPLATE.bind(Map.of("accountType", "checking", "minBalance", 1));
+        List<BsonDocument> second = TEMPLATE.bind(Map.of("accountType", "savings", "minBalance", 2));
+
+        assertSame(first.get(1), second.get(1));
+        assertSame(first.get(2), second.get(2));
+        assertEquals(
+                render(Aggregates.match(and(eq("account_type", "savings"), gt("balance", 2)))),
+                second.subList(0, 1));
+    }
+
+    @Test
+    void boundPipelinesNormalizeToTheirShape() {
+        List<BsonDocument> checking = TEMPLATE.bind(Map.of("accountType", "checking", "minBalance", 1));
+        List<BsonDocument> savings = TEMPLATE.bind(Map.of("accountType", "savings", "minBalance", 2));
+
+        NormalizedQuery normalized = NormalizedQuery.ofPipeline(checking);
+
+        assertEquals(normalized.shape(), NormalizedQuery.ofPipeline(savings).shape());
+        assertEquals(new BsonArray(checking), normalized.canonical());
+    }
+
+    @Test
+    void rejectsMissingAndUnknownParameters() {
+        assertThrows(IllegalArgumentException.class, () -> TEMPLATE.bind(Map.of("accountType", "checking")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> TEMPLATE.bind(Map.of("accountType", "checking", "minBalance", 1, "limit", 5)));
+    }
+
+    @Test
+    void movesMatchAheadOfSortAndProjection() {
+        var template = PipelineTemplate.of(
+                "rewritten",
+                List.of(
+                        Aggregates.sort(Sorts.descending("balance")),
+                        Aggregates.project(BsonDocument.parse("{account_id: 1, balance: 1}")),
+                        Aggregates.match(gt("balance", param("minBalance")))));
+
+        assertEquals(
+                render(
+                        Aggregates.match(gt("balance", 100)),
+                        Aggregates.sort(Sorts.descending("balance")),
+                        Aggregates.project(BsonDocument.parse("{account_id: 1, balance: 1}"))),
+                template.bind(Map.of("minBalance", 100)));
+    }
+
+    @Test
+    void keepsMatchBehindStageItDependsOn() {
+        var template = PipelineTemplate.of(
+                "dependent",
+                List.of(
+                        Aggregates.project(BsonDocument.parse("{balance: '$amount'}")),
+                        Aggregates.match(gt("balance", param("minBalance")))));
+
+        assertEquals(
+                render(
+                        Aggregates.project(BsonDocument.parse("{balance: '$amount'}")),
+                        Aggregates.match(gt("balance", 100))),
+                template.bind(Map.of("minBalance", 100)));
+    }
+
+    @Test
+    void mergesMatchesAroundASort() {
+        var template = PipelineTemplate.of(
+                "merged",
+                List.of(
+                        Aggregates.match(eq("account_type", param("accountType"))),
+                        Aggregates.sort(Sorts.descending("balance")),
+                        Aggregates.match(gt("balance", param("minBalance")))));
+
+        assertEquals(
+                render(
+                        Aggregates.match(and(eq("account_type", "checking"), gt("balance", 5))),
+                        Aggregates.sort(Sorts.descending("balance"))),
+                template.bind(Map.of("accountType", "checking", "minBalance", 5)));
+    }
+
+    private static List<BsonDocument> render(Bson... stages) {
+        return Arrays.stream(stages).map(Bson::toBsonDocument).toList();
+    }
+}
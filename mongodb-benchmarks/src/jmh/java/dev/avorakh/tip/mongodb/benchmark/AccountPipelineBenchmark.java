@@ -0,0 +1,28 @@
+package dev.avorakh.tip.mongodb.benchmark;
+
+import dev.avorakh.tip.mongodb.AccountPipeline;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Throughput and latency of each {@link AccountPipeline} report over the seeded {@code accounts} collection.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AccountPipelineBenchmark {
+
+    @Param
+    public AccountPipeline pipeline;
+
+    @Benchmark
+    public List<Document> aggregate(MongoBenchmarkEnvironment env) {
+        return env.accounts().aggregate(pipeline.stages()).into(new ArrayList<>());
+    }
+}
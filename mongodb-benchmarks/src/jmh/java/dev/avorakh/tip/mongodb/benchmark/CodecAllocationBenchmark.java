@@ -0,0 +1,106 @@
+package dev.avorakh.tip.mongodb.benchmark;
+
+import static com.mongodb.client.model.Filters.eq;
+
+import dev.avorakh.tip.mongodb.crud.Account;
+import dev.avorakh.tip.mongodb.crud.AccountCodec;
+import dev.avorakh.tip.mongodb.crud.MongoCrudOps;
+import dev.avorakh.tip.mongodb.crud.TypedCrudOps;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Allocation per decoded {@code accounts} document of the {@code Document} path of {@link MongoCrudOps} versus the
+ * {@link Account} record path of {@link TypedCrudOps}. Run with the {@code gc} profiler and compare
+ * {@code gc.alloc.rate.norm}.
+ *
+ * <p>The {@code decode*} benchmarks decode pre-encoded documents in memory, isolating the codecs from the network;
+ * the {@code findAll*} benchmarks read the same query through the driver.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CodecAllocationBenchmark {
+
+    private static final int DOCUMENTS = 1_000;
+    private static final Bson CHECKING = eq("account_type", "checking");
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    @State(Scope.Thread)
+    public static class EncodedAccounts {
+        final Codec<Document> documentCodec = new DocumentCodec();
+        final Codec<Account> accountCodec = new AccountCodec();
+        final byte[][] encoded = new byte[DOCUMENTS][];
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            var random = new SplittableRandom(42);
+            for (int i = 0; i < DOCUMENTS; i++) {
+                var account = MongoBenchmarkEnvironment.syntheticAccount(i, random)
+                        .append("transfers_complete", List.of("transfer-" + i));
+                ByteBuffer buffer = new RawBsonDocument(account, documentCodec).getByteBuffer().asNIO();
+                encoded[i] = new byte[buffer.remaining()];
+                buffer.get(encoded[i]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CrudState {
+        MongoCrudOps documents;
+        TypedCrudOps<Account> accounts;
+
+        @Setup(Level.Trial)
+        public void setUp(MongoBenchmarkEnvironment env) {
+            documents = new MongoCrudOps(
+                    env.client(), MongoBenchmarkEnvironment.DB_NAME, MongoBenchmarkEnvironment.ACCOUNTS);
+            accounts = new TypedCrudOps<>(
+                    env.client(), MongoBenchmarkEnvironment.DB_NAME, MongoBenchmarkEnvironment.ACCOUNTS, Account.class);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public void decodeDocument(EncodedAccounts state, Blackhole blackhole) {
+        decodeAll(state.encoded, state.documentCodec, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public void decodeAccount(EncodedAccounts state, Blackhole blackhole) {
+        decodeAll(state.encoded, state.accountCodec, blackhole);
+    }
+
+    @Benchmark
+    public List<Document> findAllDocuments(CrudState state) {
+        return state.documents.findAll(CHECKING);
+    }
+
+    @Benchmark
+    public List<Account> findAllAccounts(CrudState state) {
+        return state.accounts.findAll(CHECKING);
+    }
+
+    private static <T> void decodeAll(byte[][] encoded, Codec<T> codec, Blackhole blackhole) {
+        for (byte[] bytes : encoded) {
+            try (var reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+                blackhole.consume(codec.decode(reader, DECODER_CONTEXT));
+            }
+        }
+    }
+}
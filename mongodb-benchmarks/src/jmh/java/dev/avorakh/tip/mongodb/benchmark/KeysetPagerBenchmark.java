@@ -0,0 +1,73 @@
+package dev.avorakh.tip.mongodb.benchmark;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Indexes;
+import dev.avorakh.tip.mongodb.AccountPipeline;
+import dev.avorakh.tip.mongodb.AggregationPage;
+import dev.avorakh.tip.mongodb.KeysetPager;
+import dev.avorakh.tip.mongodb.PageKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of reading page {@code page} of the {@link AccountPipeline#GBP_BALANCES_FOR_CHECKING} report: skipping the
+ * preceding pages of the sorted result versus seeking past the last key of the previous page.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KeysetPagerBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"0", "50", "120"})
+    public int page;
+
+    private MongoCollection<Document> accounts;
+    private KeysetPager pager;
+    private PageKey after;
+    private List<Bson> skipStages;
+
+    @Setup
+    public void setUp(MongoBenchmarkEnvironment env) {
+        accounts = env.accounts();
+        accounts.createIndex(Indexes.compoundIndex(
+                Indexes.ascending("account_type"), Indexes.descending("balance"), Indexes.descending("_id")));
+        pager = AccountPipeline.GBP_BALANCES_FOR_CHECKING.pager(accounts, Map.of());
+        after = null;
+        for (int i = 0; i < page; i++) {
+            AggregationPage previous = pager.page(after, PAGE_SIZE);
+            if (!previous.hasNext()) {
+                throw new IllegalStateException("Report has fewer than " + page + " pages");
+            }
+            after = previous.next();
+        }
+        List<Bson> stages = AccountPipeline.GBP_BALANCES_FOR_CHECKING.stages();
+        skipStages = List.of(
+                stages.get(0),
+                stages.get(1),
+                Aggregates.skip(page * PAGE_SIZE),
+                Aggregates.limit(PAGE_SIZE),
+                stages.get(2));
+    }
+
+    @Benchmark
+    public List<Document> skip() {
+        return accounts.aggregate(skipStages).into(new ArrayList<>());
+    }
+
+    @Benchmark
+    public AggregationPage keyset() {
+        return pager.page(after, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,118 @@
+package dev.avorakh.tip.mongodb.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Indexes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.testcontainers.containers.MongoDBContainer;
+
+/**
+ * Shared benchmark fixture: a MongoDB server seeded with synthetic {@code accounts} documents, indexed on
+ * {@code account_id}.
+ *
+ * <p>When {@code -Dmongodb.uri} is set the benchmarks run against that (locally started) mongod, otherwise a
+ * disposable single-node replica set is started in a container. Data lives in the {@value #DB_NAME} database,
+ * which is dropped on tear-down.
+ */
+@State(Scope.Benchmark)
+public class MongoBenchmarkEnvironment {
+
+    public static final String DB_NAME = "benchmark";
+    public static final String ACCOUNTS = "accounts";
+    public static final String SCRATCH_ACCOUNTS = "accounts_scratch";
+    public static final String KNOWN_ACCOUNT_ID = "MDB79101843";
+
+    private static final String URI_PROPERTY_KEY = "mongodb.uri";
+    private static final String IMAGE = "mongo:7.0";
+    private static final int SEED_BATCH_SIZE = 1_000;
+    private static final String[] ACCOUNT_TYPES = {"checking", "savings", "investment"};
+
+    @Param({"10000"})
+    public int accountCount;
+
+    private MongoDBContainer container;
+    private MongoClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var uri = Optional.ofNullable(System.getProperty(URI_PROPERTY_KEY)).orElseGet(this::startContainer);
+        client = MongoClients.create(uri);
+        MongoDatabase db = database();
+        db.drop();
+        seed(db.getCollection(ACCOUNTS), accountCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            database().drop();
+            client.close();
+        } finally {
+            if (container != null) {
+                container.stop();
+            }
+        }
+    }
+
+    public MongoClient client() {
+        return client;
+    }
+
+    public MongoDatabase database() {
+        return client.getDatabase(DB_NAME);
+    }
+
+    public MongoCollection<Document> accounts() {
+        return database().getCollection(ACCOUNTS);
+    }
+
+    public String randomAccountId(SplittableRandom random) {
+        return accountId(random.nextInt(accountCount));
+    }
+
+    public static String accountId(int index) {
+        return index == 0 ? KNOWN_ACCOUNT_ID : String.format("MDB%08d", index);
+    }
+
+    public static Document syntheticAccount(int index, SplittableRandom random) {
+        return new Document()
+                .append("account_holder", "holder " + index)
+                .append("account_id", accountId(index))
+                .append("balance", random.nextInt(10_000))
+                .append("account_type", ACCOUNT_TYPES[random.nextInt(ACCOUNT_TYPES.length)]);
+    }
+
+    private String startContainer() {
+        container = new MongoDBContainer(IMAGE);
+        container.start();
+        return container.getReplicaSetUrl();
+    }
+
+    private static void seed(MongoCollection<Document> accounts, int count) {
+        var random = new SplittableRandom(42);
+        List<Document> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(syntheticAccount(i, random));
+            if (batch.size() == SEED_BATCH_SIZE) {
+                accounts.insertMany(batch);
+                batch = new ArrayList<>(SEED_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            accounts.insertMany(batch);
+        }
+        accounts.createIndex(Indexes.ascending("account_id"));
+    }
+}
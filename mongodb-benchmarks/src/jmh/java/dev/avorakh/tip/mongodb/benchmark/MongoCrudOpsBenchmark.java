@@ -0,0 +1,105 @@
+package dev.avorakh.tip.mongodb.benchmark;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gte;
+
+import com.mongodb.client.model.Updates;
+import dev.avorakh.tip.mongodb.crud.MongoCrudOps;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Throughput and latency of the {@link MongoCrudOps} operations against the seeded {@code accounts} collection.
+ *
+ * <p>Inserts and deletes go to a separate scratch collection so they do not change the size of the data set the
+ * read and update benchmarks run on.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MongoCrudOpsBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    private static final Bson CHECKING_WITH_BALANCE = and(gte("balance", 1000), eq("account_type", "checking"));
+
+    @State(Scope.Thread)
+    public static class CrudState {
+        MongoCrudOps accounts;
+        MongoCrudOps scratch;
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(MongoBenchmarkEnvironment env) {
+            accounts = new MongoCrudOps(
+                    env.client(), MongoBenchmarkEnvironment.DB_NAME, MongoBenchmarkEnvironment.ACCOUNTS);
+            scratch = new MongoCrudOps(
+                    env.client(), MongoBenchmarkEnvironment.DB_NAME, MongoBenchmarkEnvironment.SCRATCH_ACCOUNTS);
+            random = new SplittableRandom();
+        }
+    }
+
+    /**
+     * Batch of scratch documents for {@link #deleteAll} to remove, seeded before every invocation. Only that
+     * benchmark takes this state, so the other benchmarks neither pay for the seeding nor see it in their timings.
+     */
+    @State(Scope.Thread)
+    public static class DeletableState {
+        String deleteMarker;
+
+        @Setup(Level.Invocation)
+        public void seed(CrudState state) {
+            deleteMarker = new ObjectId().toHexString();
+            var documents = newAccounts(state.random);
+            documents.forEach(document -> document.append("delete_marker", deleteMarker));
+            state.scratch.create(documents);
+        }
+    }
+
+    @Benchmark
+    public ObjectId crete(CrudState state) {
+        return state.scratch.crete(MongoBenchmarkEnvironment.syntheticAccount(0, state.random));
+    }
+
+    @Benchmark
+    public List<ObjectId> createBatch(CrudState state) {
+        return state.scratch.create(newAccounts(state.random));
+    }
+
+    @Benchmark
+    public List<Document> findAll(CrudState state) {
+        return state.accounts.findAll(CHECKING_WITH_BALANCE);
+    }
+
+    @Benchmark
+    public boolean update(MongoBenchmarkEnvironment env, CrudState state) {
+        return state.accounts.update(eq("account_id", env.randomAccountId(state.random)), Updates.inc("balance", 1));
+    }
+
+    @Benchmark
+    public long updateAll(CrudState state) {
+        return state.accounts.updateAll(eq("account_type", "savings"), Updates.inc("minimum_balance", 1));
+    }
+
+    @Benchmark
+    public long deleteAll(CrudState state, DeletableState deletable) {
+        return state.scratch.deleteAll(eq("delete_marker", deletable.deleteMarker));
+    }
+
+    private static List<Document> newAccounts(SplittableRandom random) {
+        List<Document> documents = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            documents.add(MongoBenchmarkEnvironment.syntheticAccount(i, random));
+        }
+        return documents;
+    }
+}
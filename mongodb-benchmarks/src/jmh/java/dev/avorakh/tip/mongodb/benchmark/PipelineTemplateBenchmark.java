@@ -0,0 +1,63 @@
+package dev.avorakh.tip.mongodb.benchmark;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import dev.avorakh.tip.mongodb.AccountPipeline;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of preparing the {@link AccountPipeline#MATCH_SORT_AND_PROJECT} pipeline for one execution with a new
+ * balance threshold: building and rendering the stages with the builders versus binding the precompiled template.
+ * No server is involved.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PipelineTemplateBenchmark {
+
+    @State(Scope.Thread)
+    public static class Thresholds {
+        final SplittableRandom random = new SplittableRandom();
+
+        int next() {
+            return 1000 + random.nextInt(1000);
+        }
+    }
+
+    @Benchmark
+    public List<BsonDocument> buildPerCall(Thresholds thresholds) {
+        List<Bson> stages = List.of(
+                Aggregates.match(and(gt("balance", thresholds.next()), eq("account_type", "checking"))),
+                Aggregates.sort(Sorts.descending("balance")),
+                Aggregates.project(Projections.fields(
+                        Projections.include("account_id", "account_type", "balance"),
+                        Projections.computed("euro_balance", new Document("$divide", List.of("$balance", 1.20F))),
+                        Projections.excludeId())));
+        List<BsonDocument> rendered = new ArrayList<>(stages.size());
+        stages.forEach(stage ->
+                rendered.add(stage.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry())));
+        return rendered;
+    }
+
+    @Benchmark
+    public List<BsonDocument> bindTemplate(Thresholds thresholds) {
+        return AccountPipeline.MATCH_SORT_AND_PROJECT
+                .template()
+                .bind(Map.of("minBalance", thresholds.next(), "accountType", "checking", "euroRate", 1.20F));
+    }
+}
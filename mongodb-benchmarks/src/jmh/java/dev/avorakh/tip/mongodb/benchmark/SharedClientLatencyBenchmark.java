@@ -0,0 +1,104 @@
+package dev.avorakh.tip.mongodb.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import dev.avorakh.tip.mongodb.AccountPipeline;
+import dev.avorakh.tip.mongodb.ConnectionPoolConfig;
+import dev.avorakh.tip.mongodb.MongoConnectionAggregator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.logging.Logger;
+import org.bson.Document;
+
+/**
+ * Compares the latency of the account type summary report when a new client is created per call (the former
+ * behaviour of {@link MongoConnectionAggregator}) with the latency on a shared, warmed-up client.
+ *
+ * <p>Unlike the JMH benchmarks this is a plain main class, since it measures client creation, which JMH state
+ * cannot isolate per call. Run with {@code -Dmongodb.uri=...}; {@code -Dbenchmark.iterations} controls the number
+ * of measured calls, at least one. Both paths first run {@code -Dbenchmark.warmupIterations} unmeasured calls,
+ * then the measured calls of the two paths are interleaved.
+ */
+public final class SharedClientLatencyBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedClientLatencyBenchmark.class.getName());
+    private static final String URI_PROPERTY_KEY = "mongodb.uri";
+    private static final String ITERATIONS_PROPERTY_KEY = "benchmark.iterations";
+    private static final String WARMUP_ITERATIONS_PROPERTY_KEY = "benchmark.warmupIterations";
+
+    private SharedClientLatencyBenchmark() {}
+
+    public static void main(String[] args) {
+        var uri = Optional.ofNullable(System.getProperty(URI_PROPERTY_KEY)).orElseThrow();
+        int iterations = Integer.getInteger(ITERATIONS_PROPERTY_KEY, 200);
+        if (iterations < 1) {
+            throw new IllegalArgumentException(ITERATIONS_PROPERTY_KEY + " must be positive: " + iterations);
+        }
+        int warmupIterations = Integer.getInteger(WARMUP_ITERATIONS_PROPERTY_KEY, 20);
+        if (warmupIterations < 0) {
+            throw new IllegalArgumentException(
+                    WARMUP_ITERATIONS_PROPERTY_KEY + " must not be negative: " + warmupIterations);
+        }
+        var poolConfig = ConnectionPoolConfig.defaults();
+
+        long[] perCall = new long[iterations];
+        long[] shared = new long[iterations];
+        try (var aggregator = new MongoConnectionAggregator(uri, poolConfig)) {
+            aggregator.warmUp();
+            var accounts = aggregator.accounts();
+            for (int i = 0; i < warmupIterations; i++) {
+                runWithNewClient(uri, poolConfig);
+                runPipeline(accounts);
+            }
+            // alternate which path goes first, so neither one always runs on the state the other left behind
+            for (int i = 0; i < iterations; i++) {
+                if (i % 2 == 0) {
+                    perCall[i] = timed(() -> runWithNewClient(uri, poolConfig));
+                    shared[i] = timed(() -> runPipeline(accounts));
+                } else {
+                    shared[i] = timed(() -> runPipeline(accounts));
+                    perCall[i] = timed(() -> runWithNewClient(uri, poolConfig));
+                }
+            }
+        }
+        report("per-call client", perCall);
+        report("shared client", shared);
+    }
+
+    private static long timed(Runnable call) {
+        long start = System.nanoTime();
+        call.run();
+        return System.nanoTime() - start;
+    }
+
+    private static void runWithNewClient(String uri, ConnectionPoolConfig poolConfig) {
+        try (MongoClient client = MongoClients.create(poolConfig.toClientSettings(uri))) {
+            runPipeline(client.getDatabase("bank").getCollection("accounts"));
+        }
+    }
+
+    private static void runPipeline(MongoCollection<Document> accounts) {
+        accounts.aggregate(AccountPipeline.ACCOUNT_TYPE_SUMMARY.stages()).into(new ArrayList<>());
+    }
+
+    private static void report(String name, long[] latenciesNanos) {
+        long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+        double avgMillis = Arrays.stream(sorted).average().orElse(0) / 1_000_000.0;
+        LOGGER.info(String.format(
+                "%s: calls=%d, avg=%.3f ms, p50=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                name,
+                sorted.length,
+                avgMillis,
+                percentile(sorted, 0.50) / 1_000_000.0,
+                percentile(sorted, 0.99) / 1_000_000.0,
+                sorted[sorted.length - 1] / 1_000_000.0));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
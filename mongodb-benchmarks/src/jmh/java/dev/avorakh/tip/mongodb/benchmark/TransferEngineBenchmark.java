@@ -0,0 +1,118 @@
+package dev.avorakh.tip.mongodb.benchmark;
+
+import dev.avorakh.tip.mongodb.crud.TransferEngine;
+import dev.avorakh.tip.mongodb.crud.TransferEngineConfig;
+import dev.avorakh.tip.mongodb.crud.TransferRequest;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Transfers per second of the {@link TransferEngine} when sender and receiver accounts follow a Zipf distribution.
+ *
+ * <p>A {@code skew} of {@code 0} picks accounts uniformly; the larger the skew, the more transfers hit the same few
+ * hot accounts. A {@code maxBatchSize} of {@code 1} gives one transaction per transfer, like
+ * {@code MongoCrudOps.transferMoney}. Requires a replica set, which the container fixture provides.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransferEngineBenchmark {
+
+    private static final int TRANSFERS_PER_INVOCATION = 1_000;
+    private static final Logger LOGGER = Logger.getLogger(TransferEngineBenchmark.class.getName());
+
+    @State(Scope.Benchmark)
+    public static class EngineState {
+
+        @Param({"0", "0.8", "1.2"})
+        public double skew;
+
+        @Param({"1", "50"})
+        public int maxBatchSize;
+
+        TransferEngine engine;
+        ZipfSampler accounts;
+
+        @Setup(Level.Trial)
+        public void setUp(MongoBenchmarkEnvironment env) {
+            var defaults = TransferEngineConfig.defaults();
+            engine = new TransferEngine(
+                    env.client(),
+                    MongoBenchmarkEnvironment.DB_NAME,
+                    new TransferEngineConfig(
+                            defaults.lanes(),
+                            maxBatchSize,
+                            defaults.laneCapacity(),
+                            defaults.maxAttempts(),
+                            defaults.initialBackoff(),
+                            defaults.maxBackoff()));
+            accounts = new ZipfSampler(env.accountCount, skew);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            engine.close();
+            LOGGER.info("skew=" + skew + ", maxBatchSize=" + maxBatchSize + ": " + engine.stats());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RequestState {
+        SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSFERS_PER_INVOCATION)
+    public void transfers(EngineState engine, RequestState requests) {
+        engine.engine
+                .submitAll(Stream.generate(() -> nextTransfer(engine.accounts, requests.random))
+                        .limit(TRANSFERS_PER_INVOCATION))
+                .join();
+    }
+
+    private static TransferRequest nextTransfer(ZipfSampler accounts, SplittableRandom random) {
+        int sender = accounts.next(random);
+        int receiver = accounts.next(random);
+        while (receiver == sender) {
+            receiver = accounts.next(random);
+        }
+        return TransferRequest.of(
+                MongoBenchmarkEnvironment.accountId(sender),
+                1 + random.nextInt(100),
+                MongoBenchmarkEnvironment.accountId(receiver));
+    }
+
+    /**
+     * Samples ranks {@code 0..n-1} with probability proportional to {@code 1 / (rank + 1)^skew}.
+     */
+    static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+}
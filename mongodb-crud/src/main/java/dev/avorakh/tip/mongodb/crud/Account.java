@@ -0,0 +1,36 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.util.List;
+import org.bson.types.ObjectId;
+
+/**
+ * A {@code bank.accounts} document, mapped by {@link AccountCodec}.
+ *
+ * @param id                {@code _id}, {@code null} until the account is inserted
+ * @param accountHolder     {@code account_holder}
+ * @param accountId         {@code account_id}
+ * @param balance           {@code balance}, stored as a BSON double; integers are read too, a {@code Decimal128}
+ *                          is rejected
+ * @param accountType       {@code account_type}
+ * @param transfersComplete {@code transfers_complete}, ids of the transfers applied to the account
+ */
+public record Account(
+        ObjectId id,
+        String accountHolder,
+        String accountId,
+        double balance,
+        String accountType,
+        List<String> transfersComplete) {
+
+    public Account {
+        transfersComplete = transfersComplete == null ? List.of() : List.copyOf(transfersComplete);
+    }
+
+    public static Account of(String accountHolder, String accountId, double balance, String accountType) {
+        return new Account(null, accountHolder, accountId, balance, accountType, List.of());
+    }
+
+    public Account withId(ObjectId id) {
+        return new Account(id, accountHolder, accountId, balance, accountType, transfersComplete);
+    }
+}
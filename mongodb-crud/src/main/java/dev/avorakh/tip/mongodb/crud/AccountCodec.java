@@ -0,0 +1,82 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.util.List;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * Reads {@link Account} fields straight from the {@link BsonReader}, without an intermediate {@code Document}.
+ * Unknown fields are skipped; missing ones are left {@code null} or zero. {@code balance} is always written as a
+ * double and reading a {@code Decimal128} balance fails, so the field keeps a single numeric type.
+ */
+public final class AccountCodec implements CollectibleCodec<Account> {
+
+    @Override
+    public Account decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        String accountHolder = null;
+        String accountId = null;
+        double balance = 0;
+        String accountType = null;
+        List<String> transfersComplete = List.of();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> id = reader.readObjectId();
+                case "account_holder" -> accountHolder = BsonValues.readString(reader);
+                case "account_id" -> accountId = BsonValues.readString(reader);
+                case "balance" -> balance = BsonValues.readDouble(reader);
+                case "account_type" -> accountType = BsonValues.readString(reader);
+                case "transfers_complete" -> transfersComplete = BsonValues.readStrings(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return new Account(id, accountHolder, accountId, balance, accountType, transfersComplete);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Account account, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (account.id() != null) {
+            writer.writeObjectId("_id", account.id());
+        }
+        BsonValues.writeString(writer, "account_holder", account.accountHolder());
+        BsonValues.writeString(writer, "account_id", account.accountId());
+        writer.writeDouble("balance", account.balance());
+        BsonValues.writeString(writer, "account_type", account.accountType());
+        BsonValues.writeStrings(writer, "transfers_complete", account.transfersComplete());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Account> getEncoderClass() {
+        return Account.class;
+    }
+
+    @Override
+    public Account generateIdIfAbsentFromDocument(Account account) {
+        return documentHasId(account) ? account : account.withId(new ObjectId());
+    }
+
+    @Override
+    public boolean documentHasId(Account account) {
+        return account.id() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Account account) {
+        if (!documentHasId(account)) {
+            throw new IllegalStateException("The account does not have an _id");
+        }
+        return new BsonObjectId(account.id());
+    }
+}
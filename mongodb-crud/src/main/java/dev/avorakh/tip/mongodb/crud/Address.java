@@ -0,0 +1,11 @@
+package dev.avorakh.tip.mongodb.crud;
+
+/**
+ * The {@code address} sub-document of an {@link Inspection}, mapped by {@link AddressCodec}.
+ *
+ * @param city   {@code city}
+ * @param zip    {@code zip}, {@code 0} when missing or not numeric
+ * @param street {@code street}
+ * @param number {@code number}, {@code 0} when missing or not numeric
+ */
+public record Address(String city, int zip, String street, int number) {}
@@ -0,0 +1,50 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Reads {@link Address} fields straight from the {@link BsonReader}. Unknown fields are skipped.
+ */
+public final class AddressCodec implements Codec<Address> {
+
+    @Override
+    public Address decode(BsonReader reader, DecoderContext decoderContext) {
+        String city = null;
+        int zip = 0;
+        String street = null;
+        int number = 0;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "city" -> city = BsonValues.readString(reader);
+                case "zip" -> zip = BsonValues.readInt(reader);
+                case "street" -> street = BsonValues.readString(reader);
+                case "number" -> number = BsonValues.readInt(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return new Address(city, zip, street, number);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Address address, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        BsonValues.writeString(writer, "city", address.city());
+        writer.writeInt32("zip", address.zip());
+        BsonValues.writeString(writer, "street", address.street());
+        writer.writeInt32("number", address.number());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Address> getEncoderClass() {
+        return Address.class;
+    }
+}
@@ -0,0 +1,92 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+
+/**
+ * Lenient primitive reads and null-skipping writes shared by the hand-written record codecs.
+ */
+final class BsonValues {
+
+    private BsonValues() {}
+
+    static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return reader.readString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * Reads a value stored as a {@code double}. Integers are widened, a {@code Decimal128} is rejected instead of
+     * being narrowed, which could lose precision.
+     *
+     * @return the numeric value as a {@code double}, {@code 0} for any non-numeric type
+     * @throws BsonInvalidOperationException for a {@code Decimal128} value
+     */
+    static double readDouble(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case DOUBLE -> reader.readDouble();
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DECIMAL128 -> throw new BsonInvalidOperationException(
+                    "Field '" + reader.getCurrentName() + "' is a Decimal128, it is mapped as a double");
+            default -> {
+                reader.skipValue();
+                yield 0;
+            }
+        };
+    }
+
+    /**
+     * @return the numeric value as an {@code int}, {@code 0} for any other type
+     */
+    static int readInt(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> (int) reader.readInt64();
+            case DOUBLE -> (int) reader.readDouble();
+            default -> {
+                reader.skipValue();
+                yield 0;
+            }
+        };
+    }
+
+    static List<String> readStrings(BsonReader reader) {
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return List.of();
+        }
+        List<String> values = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String value = readString(reader);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        reader.readEndArray();
+        return values;
+    }
+
+    static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    static void writeStrings(BsonWriter writer, String name, List<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        writer.writeStartArray(name);
+        values.forEach(writer::writeString);
+        writer.writeEndArray();
+    }
+}
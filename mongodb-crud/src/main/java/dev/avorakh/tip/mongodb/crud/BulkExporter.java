@@ -0,0 +1,107 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.logging.Logger;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+
+/**
+ * Streams the result of a query or an aggregation to an NDJSON or BSON dump file, optionally compressed.
+ *
+ * <p>Documents are read as {@link RawBsonDocument}s: BSON output copies the bytes received from the server as they
+ * are, NDJSON output renders relaxed Extended JSON straight from those bytes. Only one cursor batch is held in
+ * memory at a time.
+ */
+public class BulkExporter {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkExporter.class.getName());
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final MongoCollection<RawBsonDocument> collection;
+
+    BulkExporter(MongoCollection<RawBsonDocument> collection) {
+        this.collection = collection;
+    }
+
+    /**
+     * Exports the documents matching the query, in the format and compression given by the file name.
+     */
+    public BulkIoStats exportQuery(Path file, Bson query, CursorOptions options) throws IOException {
+        return export(file, options.applyTo(collection.find(query)));
+    }
+
+    /**
+     * Exports the result of the pipeline, in the format and compression given by the file name.
+     */
+    public BulkIoStats exportAggregation(Path file, List<Bson> pipeline) throws IOException {
+        return export(file, collection.aggregate(pipeline).allowDiskUse(true));
+    }
+
+    private BulkIoStats export(Path file, MongoIterable<RawBsonDocument> documents) throws IOException {
+        long start = System.nanoTime();
+        DumpFormat format = DumpFormat.of(file);
+        long exported = 0;
+        var counting = new CountingOutputStream(open(file, Compression.of(file)));
+        try (counting;
+                MongoCursor<RawBsonDocument> cursor = documents.iterator()) {
+            while (cursor.hasNext()) {
+                format.write(cursor.next(), counting);
+                exported++;
+            }
+        }
+        var stats = new BulkIoStats(exported, 0, counting.count, Duration.ofNanos(System.nanoTime() - start));
+        LOGGER.info("✅ Exported " + collection.getNamespace() + " to " + file + ": " + stats);
+        return stats;
+    }
+
+    private static OutputStream open(Path file, Compression compression) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+        if (compression == Compression.NONE) {
+            return out;
+        }
+        return new BufferedOutputStream(compression.compress(out), BUFFER_SIZE);
+    }
+
+    /**
+     * Counts the uncompressed bytes handed to the compression stage.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.logging.Logger;
+import org.bson.RawBsonDocument;
+
+/**
+ * Loads NDJSON or BSON dump files into a collection without holding the file in memory.
+ *
+ * <p>The file is read through a {@link FileChannel}, or through the decompressing stream of its
+ * {@link Compression}, in chunks of {@link ImportConfig#chunkBytes()} cut at record boundaries. Chunks are parsed
+ * concurrently into {@link RawBsonDocument}s, which BSON input only slices and never decodes, and inserted with
+ * unordered {@code insertMany} batches of about {@link ImportConfig#batchBytes()} each. Documents rejected as
+ * duplicate keys are counted as failed and do not stop the import; any other write error or a write concern
+ * error fails the chunk.
+ */
+public class BulkImporter {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkImporter.class.getName());
+    private static final int MAX_BATCH_DOCUMENTS = 100_000;
+    private static final int DUPLICATE_KEY = 11000;
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+    private final MongoCollection<RawBsonDocument> collection;
+    private final ImportConfig config;
+    private final LongConsumer written;
+
+    BulkImporter(MongoCollection<RawBsonDocument> collection, ImportConfig config, LongConsumer written) {
+        this.collection = collection;
+        this.config = config;
+        this.written = written;
+    }
+
+    /**
+     * Imports the file in the format and compression given by its name, see {@link DumpFormat#of} and
+     * {@link Compression#of}.
+     */
+    public BulkIoStats importFile(Path file) throws IOException {
+        return importFile(file, DumpFormat.of(file), Compression.of(file));
+    }
+
+    /**
+     * @throws IllegalStateException when a chunk could not be parsed or inserted; the other chunks are imported
+     */
+    public BulkIoStats importFile(Path file, DumpFormat format, Compression compression) throws IOException {
+        long start = System.nanoTime();
+        var imported = new LongAdder();
+        var failed = new LongAdder();
+        long bytes = 0;
+        var permits = new Semaphore(config.parallelism());
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        try (ReadableByteChannel channel = open(file, compression);
+                var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            byte[] chunk = new byte[config.chunkBytes()];
+            int filled = 0;
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                ByteBuffer target = ByteBuffer.wrap(chunk, filled, chunk.length - filled);
+                while (target.hasRemaining() && !endOfInput) {
+                    endOfInput = channel.read(target) < 0;
+                }
+                filled = target.position();
+                int complete = format.completeRecords(chunk, filled, endOfInput);
+                if (complete == 0 && !endOfInput) {
+                    chunk = Arrays.copyOf(chunk, chunk.length * 2);
+                    continue;
+                }
+                byte[] next = new byte[chunk.length];
+                System.arraycopy(chunk, complete, next, 0, filled - complete);
+                acquire(permits);
+                byte[] records = chunk;
+                executor.submit(() -> {
+                    try {
+                        insertChunk(format, records, complete, imported, failed);
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+                bytes += complete;
+                filled -= complete;
+                chunk = next;
+            }
+        }
+        if (!failures.isEmpty()) {
+            var failure = new IllegalStateException(
+                    "Import of " + file + " into " + collection.getNamespace() + " failed in " + failures.size()
+                            + " chunks",
+                    failures.get(0));
+            failures.stream().skip(1).forEach(failure::addSuppressed);
+            throw failure;
+        }
+        var stats =
+                new BulkIoStats(imported.sum(), failed.sum(), bytes, Duration.ofNanos(System.nanoTime() - start));
+        LOGGER.info("✅ Imported " + file + " into " + collection.getNamespace() + ": " + stats);
+        return stats;
+    }
+
+    private static ReadableByteChannel open(Path file, Compression compression) throws IOException {
+        if (compression == Compression.NONE) {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        }
+        return Channels.newChannel(compression.decompress(Files.newInputStream(file)));
+    }
+
+    private static void acquire(Semaphore permits) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a free import worker", e);
+        }
+    }
+
+    private void insertChunk(DumpFormat format, byte[] data, int length, LongAdder imported, LongAdder failed) {
+        List<RawBsonDocument> documents = new ArrayList<>();
+        format.parse(data, length, documents::add);
+        int from = 0;
+        int batchBytes = 0;
+        for (int i = 0; i < documents.size(); i++) {
+            batchBytes += documents.get(i).getByteBuffer().remaining();
+            if (batchBytes >= config.batchBytes() || i + 1 - from == MAX_BATCH_DOCUMENTS) {
+                insert(documents.subList(from, i + 1), imported, failed);
+                from = i + 1;
+                batchBytes = 0;
+            }
+        }
+        if (from < documents.size()) {
+            insert(documents.subList(from, documents.size()), imported, failed);
+        }
+    }
+
+    private void insert(List<RawBsonDocument> batch, LongAdder imported, LongAdder failed) {
+        int inserted = batch.size();
+        try {
+            collection.insertMany(batch, UNORDERED);
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteConcernError() != null
+                    || e.getWriteErrors().isEmpty()
+                    || e.getWriteErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                count(e.getWriteResult().wasAcknowledged() ? e.getWriteResult().getInsertedCount() : 0, imported);
+                throw e;
+            }
+            int rejected = e.getWriteErrors().size();
+            inserted -= rejected;
+            failed.add(rejected);
+            LOGGER.warning("❌ " + rejected + " of " + batch.size() + " documents of " + collection.getNamespace()
+                    + " are duplicates, first: " + e.getWriteErrors().get(0).getMessage());
+        }
+        count(inserted, imported);
+    }
+
+    private void count(int inserted, LongAdder imported) {
+        imported.add(inserted);
+        written.accept(inserted);
+    }
+}
@@ -0,0 +1,39 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a {@link BulkImporter} or {@link BulkExporter} run.
+ *
+ * @param documents documents imported or exported
+ * @param failed    documents rejected by the server, e.g. duplicate keys; always {@code 0} for exports
+ * @param bytes     uncompressed bytes read or written
+ * @param elapsed   wall-clock time of the run
+ */
+public record BulkIoStats(long documents, long failed, long bytes, Duration elapsed) {
+
+    public double documentsPerSecond() {
+        return perSecond(documents);
+    }
+
+    public double megabytesPerSecond() {
+        return perSecond(bytes) / (1024 * 1024);
+    }
+
+    private double perSecond(double amount) {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return amount * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d documents (%d failed), %.1f MB in %d ms: %.0f docs/s, %.1f MB/s",
+                documents,
+                failed,
+                bytes / (1024.0 * 1024),
+                elapsed.toMillis(),
+                documentsPerSecond(),
+                megabytesPerSecond());
+    }
+}
@@ -0,0 +1,73 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.client.MongoClient;
+import dev.avorakh.tip.mongodb.instrumentation.MongoInstrumentation;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+
+/**
+ * Command-line import and export of a collection:
+ *
+ * <pre>
+ * import &lt;db&gt; &lt;collection&gt; &lt;file&gt;
+ * export &lt;db&gt; &lt;collection&gt; &lt;file&gt; [filter JSON]
+ * aggregate &lt;db&gt; &lt;collection&gt; &lt;file&gt; &lt;pipeline JSON array&gt;
+ * </pre>
+ *
+ * The format follows the file name: {@code .bson} for BSON, anything else for NDJSON, optionally followed by
+ * {@code .gz} or {@code .zst}. Run with {@code -Dmongodb.uri=...}; {@code -Dimport.parallelism},
+ * {@code -Dimport.chunkBytes} and {@code -Dimport.batchBytes} tune imports.
+ */
+public final class BulkTool {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkTool.class.getName());
+    private static final String URI_PROPERTY_KEY = "mongodb.uri";
+
+    private BulkTool() {}
+
+    public static void main(String[] args) {
+        if (args.length < 4 || ("aggregate".equals(args[0]) && args.length < 5)) {
+            LOGGER.severe("❌ Usage: import|export|aggregate <db> <collection> <file> [filter or pipeline JSON]");
+            return;
+        }
+        var uri = Optional.ofNullable(System.getProperty(URI_PROPERTY_KEY)).orElseThrow();
+        try (MongoClient client = MongoCrudOps.createClient(uri, MongoInstrumentation.disabled())) {
+            var crudOps = new MongoCrudOps(client, args[1], args[2]);
+            var file = Path.of(args[3]);
+            BulkIoStats stats = switch (args[0]) {
+                case "import" -> crudOps.importer(importConfig()).importFile(file);
+                case "export" -> crudOps.exporter().exportQuery(file, filter(args), CursorOptions.defaults());
+                case "aggregate" -> crudOps.exporter().exportAggregation(file, pipeline(args[4]));
+                default -> throw new IllegalArgumentException("Unknown command: " + args[0]);
+            };
+            LOGGER.info("✅ " + args[0] + " " + file + ": " + stats);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "❌ " + args[0] + " failed", e);
+        }
+    }
+
+    private static ImportConfig importConfig() {
+        var defaults = ImportConfig.defaults();
+        return new ImportConfig(
+                Integer.getInteger("import.chunkBytes", defaults.chunkBytes()),
+                Integer.getInteger("import.batchBytes", defaults.batchBytes()),
+                Integer.getInteger("import.parallelism", defaults.parallelism()));
+    }
+
+    private static Bson filter(String[] args) {
+        return args.length > 4 ? BsonDocument.parse(args[4]) : new BsonDocument();
+    }
+
+    private static List<Bson> pipeline(String json) {
+        return BsonArray.parse(json).stream()
+                .map(stage -> (Bson) stage.asDocument())
+                .toList();
+    }
+}
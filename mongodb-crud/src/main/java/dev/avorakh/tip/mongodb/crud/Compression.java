@@ -0,0 +1,75 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Optional compression stage of {@link BulkImporter} and {@link BulkExporter}, picked from the file suffix.
+ */
+public enum Compression {
+    NONE("") {
+        @Override
+        InputStream decompress(InputStream in) {
+            return in;
+        }
+
+        @Override
+        OutputStream compress(OutputStream out) {
+            return out;
+        }
+    },
+    GZIP(".gz") {
+        @Override
+        InputStream decompress(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+
+        @Override
+        OutputStream compress(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+    },
+    ZSTD(".zst") {
+        @Override
+        InputStream decompress(InputStream in) throws IOException {
+            return new ZstdInputStream(in);
+        }
+
+        @Override
+        OutputStream compress(OutputStream out) throws IOException {
+            return new ZstdOutputStream(out);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String suffix;
+
+    Compression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    public static Compression of(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(GZIP.suffix)) {
+            return GZIP;
+        }
+        return name.endsWith(ZSTD.suffix) ? ZSTD : NONE;
+    }
+
+    static String stripSuffix(String fileName) {
+        Compression compression = of(Path.of(fileName));
+        return fileName.substring(0, fileName.length() - compression.suffix.length());
+    }
+
+    abstract InputStream decompress(InputStream in) throws IOException;
+
+    abstract OutputStream compress(OutputStream out) throws IOException;
+}
@@ -0,0 +1,23 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * The codec registry of {@link TypedCrudOps}: the hand-written record codecs in front of the driver defaults, so
+ * filters and updates built from {@code Filters}/{@code Updates} keep working.
+ */
+public final class CrudCodecs {
+
+    private static final AddressCodec ADDRESS_CODEC = new AddressCodec();
+    private static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(new AccountCodec(), ADDRESS_CODEC, new InspectionCodec(ADDRESS_CODEC)),
+            MongoClientSettings.getDefaultCodecRegistry());
+
+    private CrudCodecs() {}
+
+    public static CodecRegistry registry() {
+        return REGISTRY;
+    }
+}
@@ -0,0 +1,70 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import org.bson.conversions.Bson;
+
+/**
+ * Cursor settings for the streaming reads of {@link MongoCrudOps} and {@link ReactiveMongoCrudOps}.
+ *
+ * @param batchSize       documents per {@code getMore} batch, {@code 0} keeps the server default
+ * @param projection      fields to return, {@code null} returns whole documents
+ * @param limit           maximum number of documents, {@code 0} means no limit
+ * @param skip            number of documents to skip
+ * @param noCursorTimeout whether the server may not time out the cursor while it is idle
+ */
+public record CursorOptions(int batchSize, Bson projection, int limit, int skip, boolean noCursorTimeout) {
+
+    private static final CursorOptions DEFAULTS = new CursorOptions(0, null, 0, 0, false);
+
+    public CursorOptions {
+        if (batchSize < 0 || limit < 0 || skip < 0) {
+            throw new IllegalArgumentException(
+                    "batchSize, limit and skip must not be negative: " + batchSize + ", " + limit + ", " + skip);
+        }
+    }
+
+    public static CursorOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public CursorOptions withBatchSize(int batchSize) {
+        return new CursorOptions(batchSize, projection, limit, skip, noCursorTimeout);
+    }
+
+    public CursorOptions withProjection(Bson projection) {
+        return new CursorOptions(batchSize, projection, limit, skip, noCursorTimeout);
+    }
+
+    public CursorOptions withLimit(int limit) {
+        return new CursorOptions(batchSize, projection, limit, skip, noCursorTimeout);
+    }
+
+    public CursorOptions withSkip(int skip) {
+        return new CursorOptions(batchSize, projection, limit, skip, noCursorTimeout);
+    }
+
+    public CursorOptions withNoCursorTimeout(boolean noCursorTimeout) {
+        return new CursorOptions(batchSize, projection, limit, skip, noCursorTimeout);
+    }
+
+    <T> FindIterable<T> applyTo(FindIterable<T> iterable) {
+        if (batchSize > 0) {
+            iterable.batchSize(batchSize);
+        }
+        if (projection != null) {
+            iterable.projection(projection);
+        }
+        return iterable.limit(limit).skip(skip).noCursorTimeout(noCursorTimeout);
+    }
+
+    <T> FindPublisher<T> applyTo(FindPublisher<T> publisher) {
+        if (batchSize > 0) {
+            publisher.batchSize(batchSize);
+        }
+        if (projection != null) {
+            publisher.projection(projection);
+        }
+        return publisher.limit(limit).skip(skip).noCursorTimeout(noCursorTimeout);
+    }
+}
@@ -0,0 +1,122 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Consumer;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+/**
+ * File formats of {@link BulkImporter} and {@link BulkExporter}.
+ */
+public enum DumpFormat {
+    /** One Extended JSON document per line. */
+    NDJSON {
+        @Override
+        int completeRecords(byte[] data, int length, boolean endOfInput) {
+            if (endOfInput) {
+                return length;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (data[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        void parse(byte[] data, int length, Consumer<RawBsonDocument> documents) {
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while (end < length && data[end] != '\n') {
+                    end++;
+                }
+                String line = new String(data, start, end - start, StandardCharsets.UTF_8).strip();
+                if (!line.isEmpty()) {
+                    documents.accept(RawBsonDocument.parse(line));
+                }
+                start = end + 1;
+            }
+        }
+
+        @Override
+        void write(RawBsonDocument document, OutputStream out) throws IOException {
+            out.write(document.toJson(RELAXED).getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+    },
+
+    /** Length-prefixed BSON documents back to back, as written by {@code mongodump}. */
+    BSON {
+        @Override
+        int completeRecords(byte[] data, int length, boolean endOfInput) {
+            var buffer = ByteBuffer.wrap(data, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+            int position = 0;
+            while (length - position >= Integer.BYTES) {
+                int size = buffer.getInt(position);
+                if (size < MIN_BSON_SIZE) {
+                    throw new IllegalArgumentException("Corrupt BSON document size " + size + " at " + position);
+                }
+                if (size > length - position) {
+                    break;
+                }
+                position += size;
+            }
+            if (endOfInput && position != length) {
+                throw new IllegalArgumentException("Truncated BSON document at " + position);
+            }
+            return position;
+        }
+
+        @Override
+        void parse(byte[] data, int length, Consumer<RawBsonDocument> documents) {
+            var buffer = ByteBuffer.wrap(data, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+            int position = 0;
+            while (position < length) {
+                int size = buffer.getInt(position);
+                documents.accept(new RawBsonDocument(data, position, size));
+                position += size;
+            }
+        }
+
+        @Override
+        void write(RawBsonDocument document, OutputStream out) throws IOException {
+            ByteBuffer buffer = document.getByteBuffer().asNIO();
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+    };
+
+    private static final int MIN_BSON_SIZE = 5;
+    private static final JsonWriterSettings RELAXED =
+            JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+
+    /**
+     * Picks the format from the file name, ignoring a compression suffix: {@code .bson} is BSON, anything else
+     * NDJSON.
+     */
+    public static DumpFormat of(Path file) {
+        String name = Compression.stripSuffix(file.getFileName().toString()).toLowerCase(Locale.ROOT);
+        return name.endsWith(".bson") ? BSON : NDJSON;
+    }
+
+    /**
+     * @param endOfInput whether no more data follows {@code data[0, length)}
+     * @return length of the prefix of {@code data[0, length)} that holds only complete records
+     */
+    abstract int completeRecords(byte[] data, int length, boolean endOfInput);
+
+    /**
+     * Passes every record of {@code data[0, length)}, which holds only complete records, to the consumer.
+     */
+    abstract void parse(byte[] data, int length, Consumer<RawBsonDocument> documents);
+
+    abstract void write(RawBsonDocument document, OutputStream out) throws IOException;
+}
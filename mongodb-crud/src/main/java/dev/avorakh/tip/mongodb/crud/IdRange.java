@@ -0,0 +1,46 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.type;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonType;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+/**
+ * One partition of a {@link PartitionedScanner}: the {@code ObjectId} range {@code [lower, upper)}. A
+ * {@code null} bound is open.
+ *
+ * @param index partition number, {@code 0} holds the smallest ids
+ * @param lower inclusive lower bound
+ * @param upper exclusive upper bound
+ */
+public record IdRange(int index, ObjectId lower, ObjectId upper) {
+
+    /**
+     * Comparisons on {@code _id} only match ids of the bound's BSON type, so a range without bounds matches
+     * {@code ObjectId} ids explicitly.
+     *
+     * @param resumeAfter last {@code _id} already processed in this range, {@code null} to start at the beginning
+     */
+    Bson toFilter(ObjectId resumeAfter) {
+        List<Bson> bounds = new ArrayList<>(2);
+        if (resumeAfter != null) {
+            bounds.add(gt("_id", resumeAfter));
+        } else if (lower != null) {
+            bounds.add(gte("_id", lower));
+        }
+        if (upper != null) {
+            bounds.add(lt("_id", upper));
+        }
+        if (bounds.isEmpty()) {
+            return type("_id", BsonType.OBJECT_ID);
+        }
+        return bounds.size() == 1 ? bounds.get(0) : and(bounds);
+    }
+}
@@ -0,0 +1,27 @@
+package dev.avorakh.tip.mongodb.crud;
+
+/**
+ * Settings of a {@link BulkImporter}.
+ *
+ * @param chunkBytes  bytes read from the file per chunk; chunks are cut at record boundaries and parsed in parallel
+ * @param batchBytes  BSON bytes sent per unordered {@code insertMany}
+ * @param parallelism chunks parsed and inserted concurrently
+ */
+public record ImportConfig(int chunkBytes, int batchBytes, int parallelism) {
+
+    private static final int MAX_BATCH_BYTES = 48 * 1024 * 1024;
+
+    public ImportConfig {
+        if (chunkBytes < 1 || batchBytes < 1 || batchBytes > MAX_BATCH_BYTES) {
+            throw new IllegalArgumentException(
+                    "Invalid import sizes: chunk=" + chunkBytes + ", batch=" + batchBytes);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+    }
+
+    public static ImportConfig defaults() {
+        return new ImportConfig(8 * 1024 * 1024, 4 * 1024 * 1024, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,31 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Instant;
+import org.bson.types.ObjectId;
+
+/**
+ * A {@code sample_training.inspections} document, mapped by {@link InspectionCodec}.
+ *
+ * @param id                {@code _id}, {@code null} until the inspection is inserted
+ * @param inspectionId      {@code id}, the business key, e.g. {@code 10021-2015-ENFO}
+ * @param certificateNumber {@code certificate_number}
+ * @param businessName      {@code business_name}
+ * @param date              {@code date}
+ * @param result            {@code result}
+ * @param sector            {@code sector}
+ * @param address           {@code address}
+ */
+public record Inspection(
+        ObjectId id,
+        String inspectionId,
+        int certificateNumber,
+        String businessName,
+        Instant date,
+        String result,
+        String sector,
+        Address address) {
+
+    public Inspection withId(ObjectId id) {
+        return new Inspection(id, inspectionId, certificateNumber, businessName, date, result, sector, address);
+    }
+}
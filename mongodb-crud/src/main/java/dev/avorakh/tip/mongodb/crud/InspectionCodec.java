@@ -0,0 +1,114 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Instant;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * Reads {@link Inspection} fields straight from the {@link BsonReader}, delegating the {@code address}
+ * sub-document to an {@link AddressCodec}. Unknown fields are skipped.
+ */
+public final class InspectionCodec implements CollectibleCodec<Inspection> {
+
+    private final AddressCodec addressCodec;
+
+    public InspectionCodec(AddressCodec addressCodec) {
+        this.addressCodec = addressCodec;
+    }
+
+    @Override
+    public Inspection decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        String inspectionId = null;
+        int certificateNumber = 0;
+        String businessName = null;
+        Instant date = null;
+        String result = null;
+        String sector = null;
+        Address address = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> id = reader.readObjectId();
+                case "id" -> inspectionId = BsonValues.readString(reader);
+                case "certificate_number" -> certificateNumber = BsonValues.readInt(reader);
+                case "business_name" -> businessName = BsonValues.readString(reader);
+                case "date" -> date = readDate(reader);
+                case "result" -> result = BsonValues.readString(reader);
+                case "sector" -> sector = BsonValues.readString(reader);
+                case "address" -> address = readAddress(reader, decoderContext);
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return new Inspection(id, inspectionId, certificateNumber, businessName, date, result, sector, address);
+    }
+
+    private static Instant readDate(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.DATE_TIME) {
+            return Instant.ofEpochMilli(reader.readDateTime());
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private Address readAddress(BsonReader reader, DecoderContext decoderContext) {
+        if (reader.getCurrentBsonType() == BsonType.DOCUMENT) {
+            return decoderContext.decodeWithChildContext(addressCodec, reader);
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Inspection inspection, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (inspection.id() != null) {
+            writer.writeObjectId("_id", inspection.id());
+        }
+        BsonValues.writeString(writer, "id", inspection.inspectionId());
+        writer.writeInt32("certificate_number", inspection.certificateNumber());
+        BsonValues.writeString(writer, "business_name", inspection.businessName());
+        if (inspection.date() != null) {
+            writer.writeDateTime("date", inspection.date().toEpochMilli());
+        }
+        BsonValues.writeString(writer, "result", inspection.result());
+        BsonValues.writeString(writer, "sector", inspection.sector());
+        if (inspection.address() != null) {
+            writer.writeName("address");
+            encoderContext.encodeWithChildContext(addressCodec, writer, inspection.address());
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Inspection> getEncoderClass() {
+        return Inspection.class;
+    }
+
+    @Override
+    public Inspection generateIdIfAbsentFromDocument(Inspection inspection) {
+        return documentHasId(inspection) ? inspection : inspection.withId(new ObjectId());
+    }
+
+    @Override
+    public boolean documentHasId(Inspection inspection) {
+        return inspection.id() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Inspection inspection) {
+        if (!documentHasId(inspection)) {
+            throw new IllegalStateException("The inspection does not have an _id");
+        }
+        return new BsonObjectId(inspection.id());
+    }
+}
@@ -4,19 +4,40 @@ import static com.mongodb.client.model.Filters.*;
 import static com.mongodb.client.model.Updates.inc;
 import static com.mongodb.client.model.Updates.push;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.*;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertManyResult;
 import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
+import dev.avorakh.tip.mongodb.instrumentation.HistogramMetricsSink;
+import dev.avorakh.tip.mongodb.instrumentation.MongoInstrumentation;
+import dev.avorakh.tip.mongodb.instrumentation.QueryDiagnostics;
+import dev.avorakh.tip.mongodb.instrumentation.QueryDiagnosticsConfig;
+import dev.avorakh.tip.mongodb.instrumentation.QueryShapeStatistics;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.jetbrains.annotations.NotNull;
@@ -24,24 +45,104 @@ import org.jetbrains.annotations.NotNull;
 public class MongoCrudOps {
     private static final Logger LOGGER = Logger.getLogger(MongoCrudOps.class.getName());
     private static final String URI_PROPERTY_KEY = "mongodb.uri";
+    private static final String INSTRUMENTATION_PROPERTY_KEY = "mongodb.instrumentation";
 
     private static final String BANK_DB_NAME = "bank";
     private static final String COLLECTION_NAME = "accounts";
 
     private final MongoCollection<Document> collection;
+    private final MongoCollection<RawBsonDocument> rawCollection;
+    private final List<Consumer<MongoNamespace>> writeListeners;
+    private final List<Rollup> rollups;
 
     public MongoCrudOps(MongoClient client, String dbName, String collectionName) {
-        MongoDatabase database = client.getDatabase(dbName);
-        this.collection = database.getCollection(collectionName);
+        this(
+                client.getDatabase(dbName).getCollection(collectionName),
+                new CopyOnWriteArrayList<>(),
+                new CopyOnWriteArrayList<>());
+    }
+
+    private MongoCrudOps(
+            MongoCollection<Document> collection,
+            List<Consumer<MongoNamespace>> writeListeners,
+            List<Rollup> rollups) {
+        this.collection = collection;
+        this.rawCollection = collection.withDocumentClass(RawBsonDocument.class);
+        this.writeListeners = writeListeners;
+        this.rollups = rollups;
+    }
+
+    /**
+     * Returns a view of the collection that reads from the given members with majority read concern and writes
+     * with majority write concern, as causal consistency requires. Used within
+     * {@link UnitOfWork#readYourWrites}, reads may go to secondaries and still observe the preceding writes of the
+     * session. The view shares this instance's write listeners and rollups.
+     */
+    public MongoCrudOps forCausalReads(ReadPreference readPreference) {
+        return new MongoCrudOps(
+                collection
+                        .withReadPreference(readPreference)
+                        .withReadConcern(ReadConcern.MAJORITY)
+                        .withWriteConcern(WriteConcern.MAJORITY),
+                writeListeners,
+                rollups);
+    }
+
+    /**
+     * Registers a listener notified with the collection's namespace after every write through this instance that
+     * changed at least one document, e.g. to invalidate cached reads of the collection. Writes made within a
+     * transaction are reported when the statement executes, not when the transaction commits.
+     */
+    public void addWriteListener(Consumer<MongoNamespace> listener) {
+        writeListeners.add(listener);
+    }
+
+    /**
+     * Adds the rollup's buckets to the documents inserted through this instance with {@code crete} and
+     * {@code create}, in the inserting session when there is one. Without a session a failed bucket update is
+     * logged and does not fail the insert. Bulk imports and write-behind inserts are not rolled up, rebuild their
+     * buckets with {@link Rollup#rebuild}.
+     */
+    public void addRollup(Rollup rollup) {
+        rollups.add(rollup);
+    }
+
+    private void rollUp(ClientSession session, List<Document> documents) {
+        for (Rollup rollup : rollups) {
+            if (session != null) {
+                rollup.apply(session, documents);
+                continue;
+            }
+            // the insert already succeeded outside a session, a stale bucket must not fail it
+            try {
+                rollup.apply(documents);
+            } catch (RuntimeException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "❌ Rollup " + rollup.definition().target() + " missed " + documents.size()
+                                + " inserted documents, rebuild their buckets",
+                        e);
+            }
+        }
+    }
+
+    private void written(long affectedDocuments) {
+        if (affectedDocuments > 0) {
+            writeListeners.forEach(listener -> listener.accept(collection.getNamespace()));
+        }
     }
 
     public ObjectId crete(Document document) {
         var result = collection.insertOne(document);
+        rollUp(null, List.of(document));
+        written(1);
         return toObjectId(result);
     }
 
     public ObjectId crete(ClientSession session, Document document) {
         var result = collection.insertOne(session, document);
+        rollUp(session, List.of(document));
+        written(1);
         return toObjectId(result);
     }
 
@@ -51,11 +152,15 @@ public class MongoCrudOps {
 
     public List<ObjectId> create(List<Document> documents) {
         var result = collection.insertMany(documents);
+        rollUp(null, documents);
+        written(documents.size());
         return toObjectIds(result);
     }
 
     public List<ObjectId> create(ClientSession session, List<Document> documents) {
         var result = collection.insertMany(session, documents);
+        rollUp(session, documents);
+        written(documents.size());
         return toObjectIds(result);
     }
 
@@ -78,6 +183,63 @@ public class MongoCrudOps {
         }
     }
 
+    /**
+     * Lazily streams the documents matching the query. Documents are pulled from the server one {@code getMore}
+     * batch at a time as the stream is consumed, so memory stays bounded by the batch size, not the result size.
+     * The stream holds an open server cursor and has to be closed, e.g. with try-with-resources.
+     */
+    public Stream<Document> stream(Bson query, CursorOptions options) {
+        return toStream(options.applyTo(findIterable(query)).iterator());
+    }
+
+    public Stream<Document> stream(ClientSession session, Bson query, CursorOptions options) {
+        return toStream(options.applyTo(findIterable(session, query)).iterator());
+    }
+
+    /**
+     * Passes every matching document to the action as it arrives and closes the cursor afterwards.
+     */
+    public void forEach(Bson query, CursorOptions options, Consumer<? super Document> action) {
+        try (Stream<Document> documents = stream(query, options)) {
+            documents.forEach(action);
+        }
+    }
+
+    public void forEach(ClientSession session, Bson query, CursorOptions options, Consumer<? super Document> action) {
+        try (Stream<Document> documents = stream(session, query, options)) {
+            documents.forEach(action);
+        }
+    }
+
+    /**
+     * Streams the matching documents undecoded, as the bytes received from the server. Use
+     * {@link RawBsonDocument#get} or {@link RawBson#field} to inspect single fields without decoding the document.
+     * The stream holds an open server cursor and has to be closed.
+     */
+    public Stream<RawBsonDocument> streamRaw(Bson query, CursorOptions options) {
+        return toStream(options.applyTo(rawCollection.find(query)).iterator());
+    }
+
+    public Stream<RawBsonDocument> streamRaw(ClientSession session, Bson query, CursorOptions options) {
+        return toStream(options.applyTo(rawCollection.find(session, query)).iterator());
+    }
+
+    /**
+     * Copies the matching documents, undecoded, to the channel, e.g. a file or a socket.
+     *
+     * @return number of bytes written
+     */
+    public long writeRaw(Bson query, CursorOptions options, WritableByteChannel channel) throws IOException {
+        try (MongoCursor<RawBsonDocument> cursor = options.applyTo(rawCollection.find(query)).iterator()) {
+            return RawBson.writeAll(cursor, channel);
+        }
+    }
+
+    private static <T> Stream<T> toStream(MongoCursor<T> cursor) {
+        var spliterator = Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
+    }
+
     private @NotNull List<Document> getDocuments(MongoCursor<Document> cursor) {
         List<Document> foundDocuments = new ArrayList<>(cursor.available());
         while (cursor.hasNext()) {
@@ -104,11 +266,13 @@ public class MongoCrudOps {
 
     public boolean update(Bson query, Bson updates) {
         UpdateResult upResult = collection.updateOne(query, updates);
+        written(upResult.getModifiedCount());
         return isModified(upResult);
     }
 
     public boolean update(ClientSession session, Bson query, Bson updates) {
         UpdateResult upResult = collection.updateOne(session, query, updates);
+        written(upResult.getModifiedCount());
         return isModified(upResult);
     }
 
@@ -119,21 +283,25 @@ public class MongoCrudOps {
 
     public long updateAll(Bson query, Bson updates) {
         UpdateResult upResult = collection.updateMany(query, updates);
+        written(upResult.getModifiedCount());
         return upResult.getModifiedCount();
     }
 
     public long updateAll(ClientSession session, Bson query, Bson updates) {
         UpdateResult upResult = collection.updateMany(session, query, updates);
+        written(upResult.getModifiedCount());
         return upResult.getModifiedCount();
     }
 
     public boolean delete(Bson query) {
         DeleteResult delResult = collection.deleteOne(query);
+        written(delResult.getDeletedCount());
         return isDeleted(delResult);
     }
 
     public boolean delete(ClientSession session, Bson query) {
         DeleteResult delResult = collection.deleteOne(session, query);
+        written(delResult.getDeletedCount());
         return isDeleted(delResult);
     }
 
@@ -144,20 +312,79 @@ public class MongoCrudOps {
 
     public long deleteAll(Bson query) {
         DeleteResult delResult = collection.deleteMany(query);
+        written(delResult.getDeletedCount());
         return delResult.getDeletedCount();
     }
 
     public long deleteAll(ClientSession session, Bson query) {
         DeleteResult delResult = collection.deleteMany(session, query);
+        written(delResult.getDeletedCount());
         return delResult.getDeletedCount();
     }
 
+    /**
+     * Starts a write-behind writer on this collection. The writer owns a flusher thread and has to be closed.
+     */
+    public WriteBehindWriter writeBehind(WriteBehindConfig config) {
+        return new WriteBehindWriter(collection, config, this::written);
+    }
+
+    /**
+     * Creates an importer that loads NDJSON or BSON dump files into this collection.
+     */
+    public BulkImporter importer(ImportConfig config) {
+        return new BulkImporter(rawCollection, config, this::written);
+    }
+
+    /**
+     * Creates an exporter that streams queries and aggregations of this collection to dump files.
+     */
+    public BulkExporter exporter() {
+        return new BulkExporter(rawCollection);
+    }
+
+    /**
+     * Creates a scanner that reads and updates this collection in parallel {@code _id} partitions, checkpointing
+     * scans in memory.
+     */
+    public PartitionedScanner partitioned(PartitionedScanConfig config) {
+        return partitioned(config, ScanCheckpointStore.inMemory());
+    }
+
+    public PartitionedScanner partitioned(PartitionedScanConfig config, ScanCheckpointStore checkpoints) {
+        return new PartitionedScanner(collection, config, checkpoints);
+    }
+
+    /**
+     * Creates a client whose commands and connection pool are reported through the instrumentation.
+     */
+    public static MongoClient createClient(String mongoUri, MongoInstrumentation instrumentation) {
+        var settings = instrumentation
+                .applyTo(MongoClientSettings.builder().applyConnectionString(new ConnectionString(mongoUri)))
+                .build();
+        return instrumentation.attach(MongoClients.create(settings));
+    }
+
     public static void main(String[] args) {
-        try (var client = MongoClients.create(
-                Optional.ofNullable(System.getProperty(URI_PROPERTY_KEY)).orElseThrow())) {
+        var metrics = new HistogramMetricsSink();
+        var diagnostics = new QueryDiagnostics(new QueryDiagnosticsConfig(1, 10, 1, false));
+        var shapeStatistics = new QueryShapeStatistics(1_000);
+        var instrumentation = Boolean.getBoolean(INSTRUMENTATION_PROPERTY_KEY)
+                ? MongoInstrumentation.of(metrics)
+                        .withPayloadTracking()
+                        .withQueryDiagnostics(diagnostics)
+                        .withQueryShapeStatistics(shapeStatistics)
+                : MongoInstrumentation.disabled();
+        try (var client = createClient(
+                        Optional.ofNullable(System.getProperty(URI_PROPERTY_KEY)).orElseThrow(), instrumentation);
+                diagnostics) {
 
             // Insert a Document
             var sampleTrainingCrudOps = new MongoCrudOps(client, "sample_training", "inspections");
+            var inspectionRollup =
+                    new Rollup(client.getDatabase("sample_training"), "inspections", RollupDefinition.INSPECTIONS);
+            inspectionRollup.ensureIndex();
+            sampleTrainingCrudOps.addRollup(inspectionRollup);
 
             var inspection = new Document("_id", new ObjectId())
                     .append("id", "10021-2015-ENFO")
@@ -180,6 +407,10 @@ public class MongoCrudOps {
             var inspectionId = sampleTrainingCrudOps.crete(inspection);
 
             LOGGER.info("✅ Inserted inspection: " + inspectionId);
+            Bson sameSector = eq("sector", inspection.get("sector"));
+            inspectionRollup
+                    .buckets(RollupGranularity.DAY, Instant.EPOCH, Instant.now(), sameSector)
+                    .forEach(bucket -> LOGGER.info("✅ Inspections: " + bucket));
 
             // Insert Multiple Documents
             var bankAccountsCrudOps = new MongoCrudOps(client, BANK_DB_NAME, COLLECTION_NAME);
@@ -205,6 +436,14 @@ public class MongoCrudOps {
             var foundAccounts = bankAccountsCrudOps.findAll(filter);
             LOGGER.info("✅ Found accounts: " + foundAccounts);
 
+            var typedAccounts = new TypedCrudOps<>(client, BANK_DB_NAME, COLLECTION_NAME, Account.class);
+            LOGGER.info("✅ Found typed accounts: " + typedAccounts.findAll(filter));
+
+            bankAccountsCrudOps.forEach(
+                    filter,
+                    CursorOptions.defaults().withBatchSize(500).withProjection(Projections.include("account_id")),
+                    account -> LOGGER.info("✅ Streamed account: " + account.get("account_id")));
+
             var foundFirstAccount = bankAccountsCrudOps.find(filter);
             LOGGER.info("✅ Found first accounts: "
                     + (foundFirstAccount.isPresent() ? foundFirstAccount.get() : "NOT FOUND"));
@@ -222,12 +461,43 @@ public class MongoCrudOps {
             LOGGER.info("✅ Updated accounts: " + updatesCount);
 
             // Transactions
-            doTransaction(client, bankAccountsCrudOps);
-
-            String accountIdOfSender = "MDB310054629";
-            double transactionAmount = 200;
-            String accountIdOfReceiver = "MDB643731035";
-            transferMoney(client, accountIdOfSender, transactionAmount, accountIdOfReceiver);
+            try (var unitOfWork = new UnitOfWork(client, UnitOfWorkConfig.defaults())) {
+                doTransaction(unitOfWork, bankAccountsCrudOps);
+
+                String accountIdOfSender = "MDB310054629";
+                double transactionAmount = 200;
+                String accountIdOfReceiver = "MDB643731035";
+                var transfersCrudOps = new MongoCrudOps(client, BANK_DB_NAME, "transfers");
+                var sentRollup =
+                        new Rollup(client.getDatabase(BANK_DB_NAME), "transfers", RollupDefinition.TRANSFERS_SENT);
+                var receivedRollup = new Rollup(
+                        client.getDatabase(BANK_DB_NAME), "transfers", RollupDefinition.TRANSFERS_RECEIVED);
+                sentRollup.ensureIndex();
+                receivedRollup.ensureIndex();
+                transfersCrudOps.addRollup(sentRollup);
+                transfersCrudOps.addRollup(receivedRollup);
+                transferMoney(
+                        unitOfWork,
+                        bankAccountsCrudOps,
+                        transfersCrudOps,
+                        accountIdOfSender,
+                        transactionAmount,
+                        accountIdOfReceiver);
+                Instant today = RollupGranularity.DAY.truncate(Instant.now());
+                sentRollup
+                        .buckets(RollupGranularity.HOUR, today, today.plus(1, ChronoUnit.DAYS), null)
+                        .forEach(bucket -> LOGGER.info("✅ Sent transfers: " + bucket));
+
+                // Read your writes from a secondary
+                var causalAccounts = bankAccountsCrudOps.forCausalReads(ReadPreference.secondaryPreferred());
+                var receiver = unitOfWork.readYourWrites(session -> {
+                    causalAccounts.update(
+                            session, eq("account_id", accountIdOfReceiver), Updates.set("last_seen", new Date()));
+                    return causalAccounts.find(session, eq("account_id", accountIdOfReceiver));
+                });
+                LOGGER.info("✅ Read own write: " + receiver.map(Document::toJson).orElse("NOT FOUND"));
+                LOGGER.info("✅ Unit of work: " + unitOfWork.stats());
+            }
 
             // Deleting Documents
             // Using deleteOne()
@@ -246,11 +516,16 @@ public class MongoCrudOps {
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "❌ MongoDB operation failed", e);
         }
+        if (instrumentation.isEnabled()) {
+            LOGGER.info(metrics.report());
+            diagnostics.report().forEach(report -> LOGGER.info(report.toString()));
+            shapeStatistics.slowest(5).forEach(timing -> LOGGER.info("Slow query shape: " + timing));
+        }
     }
 
-    private static void doTransaction(MongoClient client, MongoCrudOps bankAccountsCrudOps) {
-        try (ClientSession clientSession = client.startSession()) {
-            var transactionId = clientSession.withTransaction(() -> {
+    private static void doTransaction(UnitOfWork unitOfWork, MongoCrudOps bankAccountsCrudOps) {
+        try {
+            var transactionId = unitOfWork.inTransaction(clientSession -> {
                 Bson fromAccount = eq("account_id", "MDB310054629");
                 Bson withdrawal = inc("balance", -200);
 
@@ -310,4 +585,37 @@ public class MongoCrudOps {
             }
         }
     }
+
+    /**
+     * Transfers the amount in a transaction on a pooled session of the unit of work, recording the transfer and
+     * adding it to the {@code transfers_complete} of both accounts.
+     */
+    public static void transferMoney(
+            UnitOfWork unitOfWork,
+            MongoCrudOps accounts,
+            MongoCrudOps transfers,
+            String accountIdOfSender,
+            double transactionAmount,
+            String accountIdOfReceiver) {
+        String transferId = UUID.randomUUID().toString();
+        unitOfWork.inTransaction(session -> {
+            transfers.crete(
+                    session,
+                    new Document("_id", new ObjectId())
+                            .append("transfer_id", transferId)
+                            .append("to_account", accountIdOfReceiver)
+                            .append("from_account", accountIdOfSender)
+                            .append("amount", transactionAmount)
+                            .append("last_updated", new Date()));
+            accounts.update(
+                    session,
+                    eq("account_id", accountIdOfSender),
+                    Updates.combine(inc("balance", -1 * transactionAmount), push("transfers_complete", transferId)));
+            accounts.update(
+                    session,
+                    eq("account_id", accountIdOfReceiver),
+                    Updates.combine(inc("balance", transactionAmount), push("transfers_complete", transferId)));
+            return transferId;
+        });
+    }
 }
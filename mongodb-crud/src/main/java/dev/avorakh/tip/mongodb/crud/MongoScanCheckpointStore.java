@@ -0,0 +1,62 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import static com.mongodb.client.model.Filters.eq;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.bson.Document;
+
+/**
+ * {@link ScanCheckpointStore} keeping one document per scan partition in a MongoDB collection, so a scan can be
+ * resumed after a restart.
+ */
+public class MongoScanCheckpointStore implements ScanCheckpointStore {
+
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    private final MongoCollection<Document> checkpoints;
+
+    public MongoScanCheckpointStore(MongoCollection<Document> checkpoints) {
+        this.checkpoints = checkpoints;
+    }
+
+    @Override
+    public List<ScanCheckpoint> load(String scanId) {
+        List<ScanCheckpoint> loaded = new ArrayList<>();
+        checkpoints.find(eq("scan_id", scanId)).sort(Sorts.ascending("partition")).forEach(document -> loaded.add(
+                new ScanCheckpoint(
+                        new IdRange(
+                                document.getInteger("partition"),
+                                document.getObjectId("lower"),
+                                document.getObjectId("upper")),
+                        document.getObjectId("last_id"),
+                        document.getBoolean("done", false))));
+        return loaded;
+    }
+
+    @Override
+    public void save(String scanId, ScanCheckpoint checkpoint) {
+        IdRange range = checkpoint.range();
+        String id = scanId + ":" + range.index();
+        checkpoints.replaceOne(
+                eq("_id", id),
+                new Document("_id", id)
+                        .append("scan_id", scanId)
+                        .append("partition", range.index())
+                        .append("lower", range.lower())
+                        .append("upper", range.upper())
+                        .append("last_id", checkpoint.lastId())
+                        .append("done", checkpoint.done())
+                        .append("last_updated", new Date()),
+                UPSERT);
+    }
+
+    @Override
+    public void clear(String scanId) {
+        checkpoints.deleteMany(eq("scan_id", scanId));
+    }
+}
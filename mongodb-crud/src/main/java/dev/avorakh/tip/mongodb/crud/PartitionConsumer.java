@@ -0,0 +1,13 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import org.bson.Document;
+
+/**
+ * Receives the documents of a partitioned scan. Partitions are processed concurrently, so implementations must
+ * be thread-safe across partitions; within one partition documents arrive one at a time in {@code _id} order.
+ */
+@FunctionalInterface
+public interface PartitionConsumer {
+
+    void accept(IdRange partition, Document document);
+}
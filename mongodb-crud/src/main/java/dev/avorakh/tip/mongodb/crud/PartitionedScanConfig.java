@@ -0,0 +1,40 @@
+package dev.avorakh.tip.mongodb.crud;
+
+/**
+ * Settings of a {@link PartitionedScanner}.
+ *
+ * @param partitions          number of {@code _id} ranges the collection is split into
+ * @param maxConcurrency      partitions scanned at the same time, bounded by the connection pool size
+ * @param bounds              how the range boundaries are chosen
+ * @param samplesPerPartition {@code _id}s sampled per partition with {@link PartitionBounds#SAMPLE}
+ * @param batchSize           documents per {@code getMore} batch of each partition's cursor
+ * @param checkpointEvery     documents processed per partition between two checkpoints
+ */
+public record PartitionedScanConfig(
+        int partitions,
+        int maxConcurrency,
+        PartitionBounds bounds,
+        int samplesPerPartition,
+        int batchSize,
+        int checkpointEvery) {
+
+    public PartitionedScanConfig {
+        if (partitions < 1 || maxConcurrency < 1 || samplesPerPartition < 1 || batchSize < 1 || checkpointEvery < 1) {
+            throw new IllegalArgumentException("Partitioned scan settings must be positive");
+        }
+    }
+
+    public static PartitionedScanConfig of(int partitions) {
+        return new PartitionedScanConfig(partitions, partitions, PartitionBounds.SAMPLE, 20, 1_000, 10_000);
+    }
+
+    /**
+     * How partition boundaries are derived.
+     */
+    public enum PartitionBounds {
+        /** Quantiles of a {@code $sample} of {@code _id}s; evenly sized partitions for any insert pattern. */
+        SAMPLE,
+        /** Even split of the time span between the smallest and the largest {@code ObjectId}. */
+        MIN_MAX
+    }
+}
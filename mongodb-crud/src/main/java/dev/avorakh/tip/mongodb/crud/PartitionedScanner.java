@@ -0,0 +1,253 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.type;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import dev.avorakh.tip.mongodb.crud.PartitionedScanConfig.PartitionBounds;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+/**
+ * Parallel full-collection reads and updates: the {@code _id} range is split into partitions that are processed
+ * concurrently on virtual threads, each with its own cursor or {@code updateMany}.
+ *
+ * <p>Scans checkpoint the last processed {@code _id} of every partition, together with the partition bounds, so
+ * re-running a scan with the same id after a failure continues where each partition stopped. Only documents with
+ * an {@code ObjectId} {@code _id} are visited.
+ */
+public class PartitionedScanner {
+
+    private static final Logger LOGGER = Logger.getLogger(PartitionedScanner.class.getName());
+
+    private final MongoCollection<Document> collection;
+    private final PartitionedScanConfig config;
+    private final ScanCheckpointStore checkpoints;
+
+    PartitionedScanner(
+            MongoCollection<Document> collection, PartitionedScanConfig config, ScanCheckpointStore checkpoints) {
+        this.collection = collection;
+        this.config = config;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Splits the collection's {@code _id} range according to the configured {@link PartitionBounds}. Fewer
+     * partitions than configured are returned when the collection has too few distinct ids.
+     */
+    public List<IdRange> partitions() {
+        List<ObjectId> boundaries = config.partitions() == 1
+                ? List.of()
+                : config.bounds() == PartitionBounds.SAMPLE ? sampledBoundaries() : minMaxBoundaries();
+        List<IdRange> ranges = new ArrayList<>(boundaries.size() + 1);
+        ObjectId lower = null;
+        for (ObjectId boundary : boundaries) {
+            ranges.add(new IdRange(ranges.size(), lower, boundary));
+            lower = boundary;
+        }
+        ranges.add(new IdRange(ranges.size(), lower, null));
+        return ranges;
+    }
+
+    /**
+     * Passes every document matching the query to the consumer, resuming the scan with this id if it was
+     * interrupted before. The scan's checkpoints are removed once every partition completed.
+     *
+     * @throws IllegalStateException when a partition failed; the checkpoints are kept so the scan can be resumed
+     */
+    public ScanResult scan(String scanId, Bson query, PartitionConsumer consumer) {
+        long start = System.nanoTime();
+        List<ScanCheckpoint> state = checkpoints.load(scanId);
+        if (state.isEmpty()) {
+            state = partitions().stream()
+                    .map(range -> new ScanCheckpoint(range, null, false))
+                    .toList();
+            // persist the whole plan first, a partition failing before its first checkpoint is resumed too
+            state.forEach(checkpoint -> checkpoints.save(scanId, checkpoint));
+        } else {
+            LOGGER.info("Resuming scan " + scanId + " of " + collection.getNamespace() + " in " + state.size()
+                    + " partitions");
+        }
+        var scanned = new LongAdder();
+        List<ScanCheckpoint> pending =
+                state.stream().filter(checkpoint -> !checkpoint.done()).toList();
+        runConcurrently(
+                "scan " + scanId,
+                pending,
+                checkpoint -> scanPartition(scanId, query, checkpoint, consumer, scanned));
+        checkpoints.clear(scanId);
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        var result = new ScanResult(scanId, state.size(), scanned.sum(), elapsed);
+        LOGGER.info("✅ Scanned " + result.documents() + " documents of " + collection.getNamespace() + " in "
+                + result.partitions() + " partitions, " + result.elapsed().toMillis() + " ms");
+        return result;
+    }
+
+    /**
+     * Reads every document matching the query, partitions in parallel, and returns them in {@code _id} order.
+     */
+    public List<Document> findAll(Bson query) {
+        List<IdRange> ranges = partitions();
+        List<List<Document>> results = new ArrayList<>(Collections.nCopies(ranges.size(), List.of()));
+        runConcurrently("find", ranges, range -> {
+            List<Document> documents = collection
+                    .find(and(query, range.toFilter(null)))
+                    .sort(Sorts.ascending("_id"))
+                    .batchSize(config.batchSize())
+                    .into(new ArrayList<>());
+            synchronized (results) {
+                results.set(range.index(), documents);
+            }
+        });
+        List<Document> merged = new ArrayList<>();
+        results.forEach(merged::addAll);
+        return merged;
+    }
+
+    /**
+     * Applies the updates to every document matching the query with one {@code updateMany} per partition.
+     *
+     * @return number of modified documents
+     */
+    public long updateAll(Bson query, Bson updates) {
+        var modified = new LongAdder();
+        runConcurrently("update", partitions(), range -> modified.add(collection
+                .updateMany(and(query, range.toFilter(null)), updates)
+                .getModifiedCount()));
+        return modified.sum();
+    }
+
+    private void scanPartition(
+            String scanId, Bson query, ScanCheckpoint checkpoint, PartitionConsumer consumer, LongAdder scanned) {
+        IdRange range = checkpoint.range();
+        ObjectId lastId = checkpoint.lastId();
+        long sinceCheckpoint = 0;
+        try (MongoCursor<Document> cursor = collection
+                .find(and(query, range.toFilter(lastId)))
+                .sort(Sorts.ascending("_id"))
+                .batchSize(config.batchSize())
+                .iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                consumer.accept(range, document);
+                lastId = document.getObjectId("_id");
+                if (++sinceCheckpoint == config.checkpointEvery()) {
+                    checkpoints.save(scanId, new ScanCheckpoint(range, lastId, false));
+                    scanned.add(sinceCheckpoint);
+                    sinceCheckpoint = 0;
+                    LOGGER.fine(() -> "Scan " + scanId + " partition " + range.index() + " at " + scanned.sum()
+                            + " documents");
+                }
+            }
+        } finally {
+            scanned.add(sinceCheckpoint);
+        }
+        checkpoints.save(scanId, new ScanCheckpoint(range, lastId, true));
+    }
+
+    private <T> void runConcurrently(String operation, List<T> partitions, Consumer<T> task) {
+        var permits = new Semaphore(config.maxConcurrency());
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            partitions.forEach(partition -> executor.submit(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.add(e);
+                    return;
+                }
+                try {
+                    task.accept(partition);
+                } catch (RuntimeException e) {
+                    failures.add(e);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        if (!failures.isEmpty()) {
+            var failure = new IllegalStateException(
+                    "Partitioned " + operation + " of " + collection.getNamespace() + " failed in "
+                            + failures.size() + " partitions",
+                    failures.get(0));
+            failures.stream().skip(1).forEach(failure::addSuppressed);
+            throw failure;
+        }
+    }
+
+    private List<ObjectId> sampledBoundaries() {
+        int partitions = config.partitions();
+        List<ObjectId> sample = new ArrayList<>();
+        collection
+                .aggregate(List.of(
+                        Aggregates.sample(partitions * config.samplesPerPartition()),
+                        Aggregates.project(Projections.include("_id"))))
+                .forEach(document -> {
+                    if (document.get("_id") instanceof ObjectId id) {
+                        sample.add(id);
+                    }
+                });
+        Collections.sort(sample);
+        List<ObjectId> boundaries = new ArrayList<>(partitions - 1);
+        for (int i = 1; i < partitions && !sample.isEmpty(); i++) {
+            addIfAscending(boundaries, sample.get(i * sample.size() / partitions));
+        }
+        return boundaries;
+    }
+
+    private List<ObjectId> minMaxBoundaries() {
+        ObjectId min = boundaryId(Sorts.ascending("_id"));
+        ObjectId max = boundaryId(Sorts.descending("_id"));
+        if (min == null || max == null) {
+            return List.of();
+        }
+        long from = min.getTimestamp();
+        long span = (long) max.getTimestamp() - from;
+        int partitions = config.partitions();
+        List<ObjectId> boundaries = new ArrayList<>(partitions - 1);
+        for (int i = 1; i < partitions; i++) {
+            ObjectId boundary = firstIdOfSecond((int) (from + span * i / partitions));
+            if (boundary.compareTo(min) > 0) {
+                addIfAscending(boundaries, boundary);
+            }
+        }
+        return boundaries;
+    }
+
+    private ObjectId boundaryId(Bson sort) {
+        Document document = collection
+                .find(type("_id", "objectId"))
+                .sort(sort)
+                .projection(Projections.include("_id"))
+                .first();
+        return document == null ? null : document.getObjectId("_id");
+    }
+
+    private static ObjectId firstIdOfSecond(int epochSeconds) {
+        byte[] bytes = new byte[12];
+        ByteBuffer.wrap(bytes).putInt(epochSeconds);
+        return new ObjectId(bytes);
+    }
+
+    private static void addIfAscending(List<ObjectId> boundaries, ObjectId boundary) {
+        if (boundaries.isEmpty() || boundaries.get(boundaries.size() - 1).compareTo(boundary) < 0) {
+            boundaries.add(boundary);
+        }
+    }
+}
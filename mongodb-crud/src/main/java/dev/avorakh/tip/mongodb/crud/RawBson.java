@@ -0,0 +1,60 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.Optional;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
+/**
+ * Helpers for the raw passthrough reads of {@link MongoCrudOps}: writing undecoded documents to a channel and
+ * reading single fields without decoding the rest of the document.
+ */
+public final class RawBson {
+
+    private RawBson() {}
+
+    /**
+     * A read-only view of the document's bytes; no copy of the bytes is made.
+     */
+    public static ByteBuffer bytes(RawBsonDocument document) {
+        return document.getByteBuffer().asNIO().asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the documents back to back, in the format of a {@code mongodump} {@code .bson} file.
+     *
+     * @return number of bytes written
+     */
+    public static long writeAll(Iterator<RawBsonDocument> documents, WritableByteChannel channel) throws IOException {
+        long written = 0;
+        while (documents.hasNext()) {
+            ByteBuffer buffer = bytes(documents.next());
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Reads the value at a dotted path, e.g. {@code address.city}. Every level is scanned in place and only the
+     * value at the end of the path is decoded; sub-documents along the way stay raw.
+     */
+    public static Optional<BsonValue> field(RawBsonDocument document, String path) {
+        BsonValue value = document;
+        for (String name : path.split("\\.")) {
+            if (!(value instanceof BsonDocument current)) {
+                return Optional.empty();
+            }
+            value = current.get(name);
+            if (value == null) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(value);
+    }
+}
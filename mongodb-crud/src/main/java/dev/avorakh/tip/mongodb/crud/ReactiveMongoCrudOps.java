@@ -0,0 +1,168 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link MongoCrudOps} on the Reactive Streams driver. Nothing is sent to the server
+ * until the returned publisher is subscribed to, and no thread waits for the reply, so a few event-loop threads
+ * can keep thousands of operations in flight.
+ *
+ * <p>{@link #findAll(Bson)} honours subscriber demand: the driver only requests further batches from the server
+ * as the subscriber requests more documents.
+ */
+public class ReactiveMongoCrudOps {
+
+    private final MongoCollection<Document> collection;
+    private final List<Consumer<MongoNamespace>> writeListeners = new CopyOnWriteArrayList<>();
+
+    public ReactiveMongoCrudOps(MongoClient client, String dbName, String collectionName) {
+        MongoDatabase database = client.getDatabase(dbName);
+        this.collection = database.getCollection(collectionName);
+    }
+
+    /**
+     * Registers a listener notified with the collection's namespace after every write through this instance that
+     * changed at least one document, see {@link MongoCrudOps#addWriteListener(Consumer)}.
+     */
+    public void addWriteListener(Consumer<MongoNamespace> listener) {
+        writeListeners.add(listener);
+    }
+
+    public Mono<ObjectId> crete(Document document) {
+        return Mono.from(collection.insertOne(document)).doOnSuccess(result -> written(1)).map(this::toObjectId);
+    }
+
+    public Mono<ObjectId> crete(ClientSession session, Document document) {
+        return Mono.from(collection.insertOne(session, document))
+                .doOnSuccess(result -> written(1))
+                .map(this::toObjectId);
+    }
+
+    private ObjectId toObjectId(InsertOneResult result) {
+        return result.getInsertedId().asObjectId().getValue();
+    }
+
+    public Mono<List<ObjectId>> create(List<Document> documents) {
+        return Mono.from(collection.insertMany(documents))
+                .doOnSuccess(result -> written(documents.size()))
+                .map(this::toObjectIds);
+    }
+
+    public Mono<List<ObjectId>> create(ClientSession session, List<Document> documents) {
+        return Mono.from(collection.insertMany(session, documents))
+                .doOnSuccess(result -> written(documents.size()))
+                .map(this::toObjectIds);
+    }
+
+    private List<ObjectId> toObjectIds(InsertManyResult result) {
+        var insertedIds = new ArrayList<ObjectId>();
+        result.getInsertedIds()
+                .forEach((key, value) -> insertedIds.add(value.asObjectId().getValue()));
+        return insertedIds;
+    }
+
+    public Flux<Document> findAll(Bson query) {
+        return Flux.from(collection.find(query));
+    }
+
+    public Flux<Document> findAll(Bson query, CursorOptions options) {
+        return Flux.from(options.applyTo(collection.find(query)));
+    }
+
+    public Flux<Document> findAll(ClientSession session, Bson query) {
+        return Flux.from(collection.find(session, query));
+    }
+
+    public Flux<Document> findAll(ClientSession session, Bson query, CursorOptions options) {
+        return Flux.from(options.applyTo(collection.find(session, query)));
+    }
+
+    public Mono<Document> find(Bson query) {
+        return Mono.from(collection.find(query).first());
+    }
+
+    public Mono<Document> find(ClientSession session, Bson query) {
+        return Mono.from(collection.find(session, query).first());
+    }
+
+    public Mono<Boolean> update(Bson query, Bson updates) {
+        return Mono.from(collection.updateOne(query, updates))
+                .doOnSuccess(result -> written(result.getModifiedCount()))
+                .map(this::isModified);
+    }
+
+    public Mono<Boolean> update(ClientSession session, Bson query, Bson updates) {
+        return Mono.from(collection.updateOne(session, query, updates))
+                .doOnSuccess(result -> written(result.getModifiedCount()))
+                .map(this::isModified);
+    }
+
+    private boolean isModified(UpdateResult upResult) {
+        long modifiedCount = upResult.getModifiedCount();
+        return modifiedCount == 1;
+    }
+
+    public Mono<Long> updateAll(Bson query, Bson updates) {
+        return Mono.from(collection.updateMany(query, updates))
+                .doOnSuccess(result -> written(result.getModifiedCount()))
+                .map(UpdateResult::getModifiedCount);
+    }
+
+    public Mono<Long> updateAll(ClientSession session, Bson query, Bson updates) {
+        return Mono.from(collection.updateMany(session, query, updates))
+                .doOnSuccess(result -> written(result.getModifiedCount()))
+                .map(UpdateResult::getModifiedCount);
+    }
+
+    public Mono<Boolean> delete(Bson query) {
+        return Mono.from(collection.deleteOne(query))
+                .doOnSuccess(result -> written(result.getDeletedCount()))
+                .map(this::isDeleted);
+    }
+
+    public Mono<Boolean> delete(ClientSession session, Bson query) {
+        return Mono.from(collection.deleteOne(session, query))
+                .doOnSuccess(result -> written(result.getDeletedCount()))
+                .map(this::isDeleted);
+    }
+
+    private boolean isDeleted(DeleteResult delResult) {
+        long deletedCount = delResult.getDeletedCount();
+        return deletedCount == 1;
+    }
+
+    public Mono<Long> deleteAll(Bson query) {
+        return Mono.from(collection.deleteMany(query))
+                .doOnSuccess(result -> written(result.getDeletedCount()))
+                .map(DeleteResult::getDeletedCount);
+    }
+
+    public Mono<Long> deleteAll(ClientSession session, Bson query) {
+        return Mono.from(collection.deleteMany(session, query))
+                .doOnSuccess(result -> written(result.getDeletedCount()))
+                .map(DeleteResult::getDeletedCount);
+    }
+
+    private void written(long affectedDocuments) {
+        if (affectedDocuments > 0) {
+            writeListeners.forEach(listener -> listener.accept(collection.getNamespace()));
+        }
+    }
+}
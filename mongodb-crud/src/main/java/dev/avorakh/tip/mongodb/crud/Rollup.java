@@ -0,0 +1,230 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.lt;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.MergeOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+/**
+ * Hourly and daily summary buckets of a source collection, so time range reports read a few buckets instead of
+ * every source document.
+ *
+ * <p>Buckets are kept up to date in one of two ways. {@link #apply} adds inserted source documents to their
+ * buckets with {@code $inc} upserts, in the inserting session, which {@link MongoCrudOps#addRollup} does on every
+ * insert. {@link #rebuild} recomputes the buckets of a time range from the source with a {@code $merge} pipeline,
+ * for collections written elsewhere, e.g. by a {@link RollupScheduler}. Use one way per rollup: a rebuild deletes
+ * and recomputes the buckets it covers.
+ *
+ * <p>Source documents without a dimension are counted in the buckets with {@link #MISSING_DIMENSION} as its value.
+ *
+ * <p>Call {@link #ensureIndex()} first: the unique index on the bucket key serves the upserts, the {@code $merge}
+ * and the reads.
+ */
+public class Rollup {
+
+    /**
+     * Dimension value of the buckets of source documents without the dimension field, or with {@code null} in it.
+     */
+    public static final String MISSING_DIMENSION = "(none)";
+
+    private static final String GRANULARITY = "granularity";
+    private static final String START = "start";
+    private static final String COUNT = "count";
+    private static final String SUM = "sum";
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    private final RollupDefinition definition;
+    private final MongoCollection<Document> source;
+    private final MongoCollection<Document> buckets;
+
+    public Rollup(MongoDatabase database, String sourceCollection, RollupDefinition definition) {
+        this.definition = definition;
+        this.source = database.getCollection(sourceCollection);
+        this.buckets = database.getCollection(definition.target());
+    }
+
+    public RollupDefinition definition() {
+        return definition;
+    }
+
+    public void ensureIndex() {
+        List<String> key = new ArrayList<>(List.of(GRANULARITY, START));
+        key.addAll(definition.dimensions());
+        buckets.createIndex(Indexes.ascending(key), new IndexOptions().unique(true));
+    }
+
+    public void apply(List<Document> documents) {
+        write(null, documents);
+    }
+
+    /**
+     * Adds the source documents to their hourly and daily buckets in the session, so a transaction inserting
+     * them commits or aborts its bucket updates with them. Documents of the same bucket are combined into one
+     * update; documents without the time field are skipped.
+     */
+    public void apply(ClientSession session, List<Document> documents) {
+        write(session, documents);
+    }
+
+    /**
+     * Recomputes the buckets overlapping the time range from the source documents. The buckets already there
+     * for the range are deleted first, so a bucket whose source documents were deleted, or moved to another time
+     * or dimension value, does not outlive the rebuild. The delete and the {@code $merge} are separate writes:
+     * readers may briefly see the range without buckets.
+     */
+    public void rebuild(Instant from, Instant to) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            Instant start = granularity.truncate(from);
+            Instant end = granularity.ceil(to);
+            buckets.deleteMany(and(
+                    eq(GRANULARITY, granularity.unit()), gte(START, Date.from(start)), lt(START, Date.from(end))));
+            source.aggregate(rebuildPipeline(granularity, start, end)).toCollection();
+        }
+    }
+
+    /**
+     * Returns the buckets of the granularity starting within the time range, in time order.
+     *
+     * @param dimensionFilter filter on the dimension fields, {@code null} for all combinations
+     */
+    public List<RollupBucket> buckets(
+            RollupGranularity granularity, Instant from, Instant to, Bson dimensionFilter) {
+        List<Bson> filters = new ArrayList<>(List.of(
+                eq(GRANULARITY, granularity.unit()), gte(START, Date.from(from)), lt(START, Date.from(to))));
+        if (dimensionFilter != null) {
+            filters.add(dimensionFilter);
+        }
+        List<RollupBucket> result = new ArrayList<>();
+        for (Document bucket : buckets.find(and(filters)).sort(Sorts.ascending(START))) {
+            Map<String, Object> dimensions = new LinkedHashMap<>();
+            definition.dimensions().forEach(dimension -> dimensions.put(dimension, bucket.get(dimension)));
+            result.add(new RollupBucket(
+                    granularity,
+                    bucket.getDate(START).toInstant(),
+                    dimensions,
+                    bucket.get(COUNT, Number.class).longValue(),
+                    bucket.get(SUM, Number.class).doubleValue()));
+        }
+        return result;
+    }
+
+    private void write(ClientSession session, List<Document> documents) {
+        Map<BucketKey, Totals> totals = new LinkedHashMap<>();
+        for (Document document : documents) {
+            Date time = document.getDate(definition.timeField());
+            if (time == null) {
+                continue;
+            }
+            List<Object> dimensions = new ArrayList<>(definition.dimensions().size());
+            definition.dimensions().forEach(dimension -> {
+                Object value = document.get(dimension);
+                dimensions.add(value == null ? MISSING_DIMENSION : value);
+            });
+            Number amount = definition.sumField() == null ? null : document.get(definition.sumField(), Number.class);
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                var key = new BucketKey(granularity, granularity.truncate(time.toInstant()), dimensions);
+                totals.computeIfAbsent(key, ignored -> new Totals()).add(amount);
+            }
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+        List<WriteModel<Document>> updates = new ArrayList<>(totals.size());
+        totals.forEach((key, total) -> updates.add(new UpdateOneModel<>(
+                key.filter(definition),
+                Updates.combine(Updates.inc(COUNT, total.count), Updates.inc(SUM, total.sum)),
+                UPSERT)));
+        if (session == null) {
+            buckets.bulkWrite(updates, UNORDERED);
+        } else {
+            buckets.bulkWrite(session, updates, UNORDERED);
+        }
+    }
+
+    private List<Bson> rebuildPipeline(RollupGranularity granularity, Instant from, Instant to) {
+        var groupKey = new Document();
+        // $merge rejects null or missing key fields, missing dimensions go to the same bucket as in apply
+        definition.dimensions()
+                .forEach(dimension -> groupKey.append(
+                        dimension, new Document("$ifNull", List.of("$" + dimension, MISSING_DIMENSION))));
+        groupKey.append(
+                START,
+                new Document(
+                        "$dateTrunc",
+                        new Document("date", "$" + definition.timeField())
+                                .append("unit", granularity.unit())
+                                .append("timezone", "UTC")));
+        List<Bson> fields = new ArrayList<>();
+        fields.add(Projections.excludeId());
+        fields.add(Projections.computed(GRANULARITY, new Document("$literal", granularity.unit())));
+        fields.add(Projections.computed(START, "$_id." + START));
+        definition.dimensions().forEach(dimension -> fields.add(Projections.computed(dimension, "$_id." + dimension)));
+        fields.add(Projections.include(COUNT, SUM));
+
+        List<String> on = new ArrayList<>(List.of(GRANULARITY, START));
+        on.addAll(definition.dimensions());
+        return List.of(
+                Aggregates.match(and(
+                        gte(definition.timeField(), Date.from(from)), lt(definition.timeField(), Date.from(to)))),
+                Aggregates.group(
+                        groupKey,
+                        Accumulators.sum(COUNT, 1),
+                        Accumulators.sum(SUM, definition.sumField() == null ? 0 : "$" + definition.sumField())),
+                Aggregates.project(Projections.fields(fields)),
+                Aggregates.merge(
+                        definition.target(),
+                        new MergeOptions()
+                                .uniqueIdentifier(on)
+                                .whenMatched(MergeOptions.WhenMatched.REPLACE)
+                                .whenNotMatched(MergeOptions.WhenNotMatched.INSERT)));
+    }
+
+    private record BucketKey(RollupGranularity granularity, Instant start, List<Object> dimensions) {
+        Bson filter(RollupDefinition definition) {
+            List<Bson> filters = new ArrayList<>(dimensions.size() + 2);
+            filters.add(eq(GRANULARITY, granularity.unit()));
+            filters.add(eq(START, Date.from(start)));
+            for (int i = 0; i < dimensions.size(); i++) {
+                filters.add(eq(definition.dimensions().get(i), dimensions.get(i)));
+            }
+            return and(filters);
+        }
+    }
+
+    private static final class Totals {
+        private long count;
+        private double sum;
+
+        void add(Number amount) {
+            count++;
+            if (amount != null) {
+                sum += amount.doubleValue();
+            }
+        }
+    }
+}
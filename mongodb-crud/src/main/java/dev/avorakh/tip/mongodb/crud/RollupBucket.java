@@ -0,0 +1,16 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Summary of the source documents of one {@link Rollup} time bucket and dimension combination.
+ *
+ * @param granularity width of the bucket
+ * @param start       start of the bucket
+ * @param dimensions  values of the dimension fields by name
+ * @param count       number of source documents
+ * @param sum         sum of the summed field, {@code 0} when the rollup only counts
+ */
+public record RollupBucket(
+        RollupGranularity granularity, Instant start, Map<String, Object> dimensions, long count, double sum) {}
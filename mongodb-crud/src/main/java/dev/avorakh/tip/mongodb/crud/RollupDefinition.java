@@ -0,0 +1,37 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.util.List;
+
+/**
+ * What a {@link Rollup} counts: documents of a source collection, bucketed by the hour and day of a date field
+ * and grouped by dimension fields, optionally summing a numeric field.
+ *
+ * @param target     collection holding the buckets
+ * @param timeField  date field of the source documents that selects their buckets
+ * @param dimensions fields of the source documents the buckets are grouped by
+ * @param sumField   numeric field summed per bucket, {@code null} to only count
+ */
+public record RollupDefinition(String target, String timeField, List<String> dimensions, String sumField) {
+
+    /**
+     * {@code sample_training.inspections} per sector and result.
+     */
+    public static final RollupDefinition INSPECTIONS =
+            new RollupDefinition("inspection_rollups", "date", List.of("sector", "result"), null);
+
+    /**
+     * {@code bank.transfers} per sending account, summing the amount sent.
+     */
+    public static final RollupDefinition TRANSFERS_SENT =
+            new RollupDefinition("transfer_rollups_sent", "last_updated", List.of("from_account"), "amount");
+
+    /**
+     * {@code bank.transfers} per receiving account, summing the amount received.
+     */
+    public static final RollupDefinition TRANSFERS_RECEIVED =
+            new RollupDefinition("transfer_rollups_received", "last_updated", List.of("to_account"), "amount");
+
+    public RollupDefinition {
+        dimensions = List.copyOf(dimensions);
+    }
+}
@@ -0,0 +1,42 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Width of the time buckets of a {@link Rollup}, aligned to UTC.
+ */
+public enum RollupGranularity {
+    HOUR("hour", ChronoUnit.HOURS),
+    DAY("day", ChronoUnit.DAYS);
+
+    private final String unit;
+    private final ChronoUnit chronoUnit;
+
+    RollupGranularity(String unit, ChronoUnit chronoUnit) {
+        this.unit = unit;
+        this.chronoUnit = chronoUnit;
+    }
+
+    /**
+     * @return the unit as stored in the buckets and understood by {@code $dateTrunc}
+     */
+    public String unit() {
+        return unit;
+    }
+
+    /**
+     * @return start of the bucket containing the instant
+     */
+    public Instant truncate(Instant instant) {
+        return instant.truncatedTo(chronoUnit);
+    }
+
+    /**
+     * @return start of the first bucket not before the instant
+     */
+    public Instant ceil(Instant instant) {
+        Instant start = truncate(instant);
+        return start.equals(instant) ? start : start.plus(1, chronoUnit);
+    }
+}
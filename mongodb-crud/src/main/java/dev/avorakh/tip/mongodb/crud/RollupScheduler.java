@@ -0,0 +1,75 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically rebuilds the recent buckets of {@link Rollup}s whose source collections are not written through
+ * {@link MongoCrudOps}. Every run recomputes the buckets of the last {@code lookback}, so documents arriving late
+ * within it are still counted.
+ */
+public class RollupScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(RollupScheduler.class.getName());
+
+    private final List<Rollup> rollups;
+    private final Duration lookback;
+    private final ScheduledExecutorService executor;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public RollupScheduler(List<Rollup> rollups, Duration interval, Duration lookback) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        this.rollups = List.copyOf(rollups);
+        this.lookback = lookback;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("rollup-scheduler").daemon(true).factory());
+        executor.scheduleWithFixedDelay(this::runOnce, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rebuilds the buckets of the last {@code lookback} of every rollup; a failing rollup does not stop the others.
+     */
+    public void runOnce() {
+        Instant now = Instant.now();
+        for (Rollup rollup : rollups) {
+            try {
+                rollup.rebuild(now.minus(lookback), now);
+            } catch (RuntimeException e) {
+                failures.increment();
+                LOGGER.log(Level.WARNING, "❌ Rollup into " + rollup.definition().target() + " failed", e);
+            }
+        }
+        runs.increment();
+    }
+
+    public long runs() {
+        return runs.sum();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
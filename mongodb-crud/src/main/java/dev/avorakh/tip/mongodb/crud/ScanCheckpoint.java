@@ -0,0 +1,12 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Progress of one partition of a partitioned scan.
+ *
+ * @param range  the partition
+ * @param lastId last {@code _id} processed, {@code null} when nothing was processed yet
+ * @param done   whether the partition was scanned to its end
+ */
+public record ScanCheckpoint(IdRange range, ObjectId lastId, boolean done) {}
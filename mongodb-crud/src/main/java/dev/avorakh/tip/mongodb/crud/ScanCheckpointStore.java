@@ -0,0 +1,50 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Persists the progress of partitioned scans so an interrupted scan can resume with the same partitions instead
+ * of starting over.
+ */
+public interface ScanCheckpointStore {
+
+    /**
+     * @return checkpoints of every partition of the scan ordered by partition index, empty for an unknown scan
+     */
+    List<ScanCheckpoint> load(String scanId);
+
+    void save(String scanId, ScanCheckpoint checkpoint);
+
+    /**
+     * Forgets a scan once it finished.
+     */
+    void clear(String scanId);
+
+    /**
+     * @return store that keeps checkpoints in memory, for resuming a scan within the same process
+     */
+    static ScanCheckpointStore inMemory() {
+        return new ScanCheckpointStore() {
+            private final Map<String, Map<Integer, ScanCheckpoint>> scans = new ConcurrentHashMap<>();
+
+            @Override
+            public List<ScanCheckpoint> load(String scanId) {
+                return List.copyOf(scans.getOrDefault(scanId, Map.of()).values());
+            }
+
+            @Override
+            public void save(String scanId, ScanCheckpoint checkpoint) {
+                scans.computeIfAbsent(scanId, ignored -> new ConcurrentSkipListMap<>())
+                        .put(checkpoint.range().index(), checkpoint);
+            }
+
+            @Override
+            public void clear(String scanId) {
+                scans.remove(scanId);
+            }
+        };
+    }
+}
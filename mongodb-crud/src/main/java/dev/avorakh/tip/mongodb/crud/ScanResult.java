@@ -0,0 +1,13 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Duration;
+
+/**
+ * Summary of a finished partitioned scan.
+ *
+ * @param scanId     identifier the scan was checkpointed under
+ * @param partitions number of partitions
+ * @param documents  documents processed by this run, excluding those processed before a resume
+ * @param elapsed    wall time of this run
+ */
+public record ScanResult(String scanId, int partitions, long documents, Duration elapsed) {}
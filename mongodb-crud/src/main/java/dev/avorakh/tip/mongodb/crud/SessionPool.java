@@ -0,0 +1,110 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import java.time.Duration;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of causally consistent {@link ClientSession}s of one client.
+ *
+ * <p>Sessions are handed out most recently released first, so a lightly loaded pool keeps reusing the same few
+ * warm sessions while the others age out after {@code maxIdle}.
+ */
+class SessionPool implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SessionPool.class.getName());
+    private static final ClientSessionOptions OPTIONS =
+            ClientSessionOptions.builder().causallyConsistent(true).build();
+
+    private final MongoClient client;
+    private final long maxIdleNanos;
+    private final Semaphore permits;
+    private final BlockingDeque<IdleSession> idle = new LinkedBlockingDeque<>();
+    private final LongAdder created = new LongAdder();
+    private volatile boolean open = true;
+
+    SessionPool(MongoClient client, int size, Duration maxIdle) {
+        this.client = client;
+        this.maxIdleNanos = maxIdle.toNanos();
+        this.permits = new Semaphore(size, true);
+    }
+
+    ClientSession acquire() {
+        if (!open) {
+            throw new IllegalStateException("Session pool is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoInterruptedException("Interrupted while waiting for a session", e);
+        }
+        try {
+            long now = System.nanoTime();
+            IdleSession candidate;
+            while ((candidate = idle.pollFirst()) != null) {
+                if (now - candidate.releasedAtNanos() < maxIdleNanos) {
+                    return candidate.session();
+                }
+                closeQuietly(candidate.session());
+            }
+            created.increment();
+            return client.startSession(OPTIONS);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the session to the pool. A session whose unit of work failed is closed instead, so the driver
+     * discards its server session if the failure left it unusable.
+     */
+    void release(ClientSession session, boolean reusable) {
+        try {
+            if (session.hasActiveTransaction()) {
+                session.abortTransaction();
+            }
+            if (reusable && open) {
+                idle.offerFirst(new IdleSession(session, System.nanoTime()));
+            } else {
+                closeQuietly(session);
+            }
+        } catch (RuntimeException e) {
+            closeQuietly(session);
+        } finally {
+            permits.release();
+        }
+    }
+
+    long created() {
+        return created.sum();
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        IdleSession candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            closeQuietly(candidate.session());
+        }
+    }
+
+    private static void closeQuietly(ClientSession session) {
+        try {
+            session.close();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "❌ Failed to close a pooled session", e);
+        }
+    }
+
+    private record IdleSession(ClientSession session, long releasedAtNanos) {}
+}
@@ -0,0 +1,342 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.inc;
+import static com.mongodb.client.model.Updates.pushEach;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import dev.avorakh.tip.mongodb.instrumentation.LatencyRecorder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+/**
+ * High-throughput replacement for {@link MongoCrudOps#transferMoney}: transfers are queued on one of
+ * {@link TransferEngineConfig#lanes()} lanes chosen by the sender's account stripe and committed by the lane in
+ * batches of up to {@link TransferEngineConfig#maxBatchSize()} transfers per transaction.
+ *
+ * <p>Before a batch is committed the lane locks the stripes of every account in it, in stripe order, so
+ * transfers touching the same account are serialized in the process instead of conflicting in the database. The
+ * account updates of a batch are netted per account. Transient transaction errors are retried with jittered
+ * exponential backoff; a batch that keeps failing is retried transfer by transfer so a single bad transfer
+ * cannot fail its neighbours. A batch whose commit result stays unknown is never retried, its transfers fail with
+ * {@link TransferOutcomeUnknownException}.
+ *
+ * <p>Transactions require a replica set or a sharded cluster.
+ */
+public class TransferEngine implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(TransferEngine.class.getName());
+    private static final int WRITE_CONFLICT = 112;
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final MongoClient client;
+    private final MongoCollection<Document> accounts;
+    private final MongoCollection<Document> transfers;
+    private final TransferEngineConfig config;
+    private final ReentrantLock[] stripes;
+    private final List<Lane> lanes;
+    // submitters hold the read lock from the running check until their transfer is queued, close takes the write
+    // lock to stop accepting, so no transfer is queued after its lane drained the queue for the last time
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    private final LongAdder committedTransfers = new LongAdder();
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder unknownOutcomes = new LongAdder();
+    private final LatencyRecorder commitLatency = new LatencyRecorder();
+    private final LatencyRecorder transferLatency = new LatencyRecorder();
+
+    public TransferEngine(MongoClient client, String dbName, TransferEngineConfig config) {
+        MongoDatabase database = client.getDatabase(dbName);
+        this.client = client;
+        this.accounts = database.getCollection("accounts");
+        this.transfers = database.getCollection("transfers");
+        this.config = config;
+        this.stripes = new ReentrantLock[config.lanes()];
+        this.lanes = new ArrayList<>(config.lanes());
+        for (int i = 0; i < config.lanes(); i++) {
+            stripes[i] = new ReentrantLock();
+            lanes.add(new Lane(i));
+        }
+    }
+
+    /**
+     * Queues a transfer, blocking while its lane is full.
+     *
+     * @return completes with the transfer id once the transfer is committed
+     */
+    public CompletableFuture<String> submit(TransferRequest request) {
+        var pending = new PendingTransfer(request, new CompletableFuture<>(), System.nanoTime());
+        acceptLock.readLock().lock();
+        try {
+            if (!running) {
+                pending.result().completeExceptionally(new IllegalStateException("Transfer engine is closed"));
+                return pending.result();
+            }
+            lanes.get(stripe(request.accountIdOfSender())).queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.result().completeExceptionally(e);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        return pending.result();
+    }
+
+    /**
+     * @return completes when every transfer of the stream is committed, exceptionally if any of them failed
+     */
+    public CompletableFuture<Void> submitAll(Stream<TransferRequest> requests) {
+        return CompletableFuture.allOf(requests.map(this::submit).toArray(CompletableFuture[]::new));
+    }
+
+    public TransferStats stats() {
+        return new TransferStats(
+                committedTransfers.sum(),
+                transactions.sum(),
+                conflicts.sum(),
+                retries.sum(),
+                failures.sum(),
+                unknownOutcomes.sum(),
+                commitLatency.snapshot(),
+                transferLatency.snapshot());
+    }
+
+    /**
+     * Stops accepting transfers and waits until every queued transfer has been processed. Transfers a lane did not
+     * get to, because it was interrupted, fail with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        acceptLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        var error = new IllegalStateException("Transfer engine is closed");
+        for (Lane lane : lanes) {
+            for (PendingTransfer pending = lane.queue.poll(); pending != null; pending = lane.queue.poll()) {
+                pending.result().completeExceptionally(error);
+            }
+        }
+    }
+
+    private int stripe(String accountId) {
+        return Math.floorMod(accountId.hashCode(), stripes.length);
+    }
+
+    private void process(ClientSession session, List<PendingTransfer> batch) {
+        try {
+            commitWithRetries(session, batch);
+        } catch (RuntimeException e) {
+            if (e instanceof MongoException mongoException
+                    && mongoException.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)) {
+                // the batch may have been applied, retrying any of its transfers could apply them twice
+                unknownOutcomes.add(batch.size());
+                var error = new TransferOutcomeUnknownException(
+                        batch.stream().map(pending -> pending.request().transferId()).toList(), e);
+                LOGGER.log(Level.SEVERE, "❌ " + error.getMessage(), e);
+                batch.forEach(pending -> pending.result().completeExceptionally(error));
+                return;
+            }
+            if (batch.size() > 1) {
+                LOGGER.log(Level.WARNING, "Batch of " + batch.size() + " transfers failed, retrying one by one", e);
+                batch.forEach(pending -> process(session, List.of(pending)));
+                return;
+            }
+            failures.increment();
+            batch.get(0).result().completeExceptionally(e);
+            return;
+        }
+        transactions.increment();
+        committedTransfers.add(batch.size());
+        long now = System.nanoTime();
+        batch.forEach(pending -> {
+            transferLatency.record(now - pending.submittedNanos());
+            pending.result().complete(pending.request().transferId());
+        });
+    }
+
+    private void commitWithRetries(ClientSession session, List<PendingTransfer> batch) {
+        var touched = new TreeSet<Integer>();
+        batch.forEach(pending -> {
+            touched.add(stripe(pending.request().accountIdOfSender()));
+            touched.add(stripe(pending.request().accountIdOfReceiver()));
+        });
+        touched.forEach(stripe -> stripes[stripe].lock());
+        try {
+            for (int attempt = 1; ; attempt++) {
+                long start = System.nanoTime();
+                try {
+                    session.startTransaction();
+                    apply(session, batch);
+                    commit(session);
+                    commitLatency.record(System.nanoTime() - start);
+                    return;
+                } catch (MongoException e) {
+                    abortQuietly(session);
+                    if (e.getCode() == WRITE_CONFLICT) {
+                        conflicts.increment();
+                    }
+                    if (!e.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                            || attempt >= config.maxAttempts()) {
+                        throw e;
+                    }
+                    retries.increment();
+                    backoff(attempt);
+                }
+            }
+        } finally {
+            touched.descendingSet().forEach(stripe -> stripes[stripe].unlock());
+        }
+    }
+
+    private void apply(ClientSession session, List<PendingTransfer> batch) {
+        List<Document> transferDocuments = new ArrayList<>(batch.size());
+        Map<String, AccountDelta> deltas = new LinkedHashMap<>();
+        for (PendingTransfer pending : batch) {
+            TransferRequest request = pending.request();
+            transferDocuments.add(new Document("_id", new ObjectId())
+                    .append("transfer_id", request.transferId())
+                    .append("to_account", request.accountIdOfReceiver())
+                    .append("from_account", request.accountIdOfSender())
+                    .append("amount", request.amount())
+                    .append("last_updated", new Date()));
+            deltas.computeIfAbsent(request.accountIdOfSender(), ignored -> new AccountDelta())
+                    .add(-request.amount(), request.transferId());
+            deltas.computeIfAbsent(request.accountIdOfReceiver(), ignored -> new AccountDelta())
+                    .add(request.amount(), request.transferId());
+        }
+        transfers.insertMany(session, transferDocuments);
+        List<WriteModel<Document>> updates = new ArrayList<>(deltas.size());
+        deltas.forEach((accountId, delta) -> updates.add(new UpdateOneModel<>(
+                eq("account_id", accountId),
+                combine(inc("balance", delta.amount), pushEach("transfers_complete", delta.transferIds)))));
+        accounts.bulkWrite(session, updates);
+    }
+
+    private void commit(ClientSession session) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                session.commitTransaction();
+                return;
+            } catch (MongoException e) {
+                if (!e.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)
+                        || attempt >= config.maxAttempts()) {
+                    throw e;
+                }
+                retries.increment();
+            }
+        }
+    }
+
+    private static void abortQuietly(ClientSession session) {
+        if (!session.hasActiveTransaction()) {
+            return;
+        }
+        try {
+            session.abortTransaction();
+        } catch (MongoException e) {
+            LOGGER.log(Level.FINE, "Abort of failed transfer transaction failed", e);
+        }
+    }
+
+    /**
+     * Sleeps a random time between zero and the exponentially growing, capped backoff of the attempt.
+     */
+    private void backoff(int attempt) {
+        long initial = config.initialBackoff().toNanos();
+        long cap = Math.min(config.maxBackoff().toNanos(), initial << Math.min(attempt - 1, 30));
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(cap + 1)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoInterruptedException("Interrupted while backing off a transfer retry", e);
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final BlockingQueue<PendingTransfer> queue = new ArrayBlockingQueue<>(config.laneCapacity());
+        private final Thread thread;
+
+        Lane(int index) {
+            this.thread = Thread.ofPlatform()
+                    .name("transfer-lane-" + index)
+                    .daemon(true)
+                    .start(this);
+        }
+
+        @Override
+        public void run() {
+            List<PendingTransfer> batch = new ArrayList<>(config.maxBatchSize());
+            try (ClientSession session = client.startSession()) {
+                while (running || !queue.isEmpty()) {
+                    PendingTransfer first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, config.maxBatchSize() - 1);
+                    process(session, batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                var error = new IllegalStateException("Transfer lane was interrupted", e);
+                batch.forEach(pending -> pending.result().completeExceptionally(error));
+                queue.forEach(pending -> pending.result().completeExceptionally(error));
+            }
+        }
+    }
+
+    private static final class AccountDelta {
+        private double amount;
+        private final List<String> transferIds = new ArrayList<>(1);
+
+        void add(double delta, String transferId) {
+            amount += delta;
+            transferIds.add(transferId);
+        }
+    }
+
+    private record PendingTransfer(TransferRequest request, CompletableFuture<String> result, long submittedNanos) {}
+}
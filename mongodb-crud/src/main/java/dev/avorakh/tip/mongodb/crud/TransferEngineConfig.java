@@ -0,0 +1,35 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link TransferEngine}.
+ *
+ * @param lanes          number of account stripes; transfers are queued on the lane of their sender's stripe
+ * @param maxBatchSize   transfers committed in one transaction
+ * @param laneCapacity   transfers queued per lane before producers block
+ * @param maxAttempts    attempts of a transaction before its transfers fail
+ * @param initialBackoff upper bound of the first retry delay
+ * @param maxBackoff     upper bound of any retry delay
+ */
+public record TransferEngineConfig(
+        int lanes,
+        int maxBatchSize,
+        int laneCapacity,
+        int maxAttempts,
+        Duration initialBackoff,
+        Duration maxBackoff) {
+
+    public TransferEngineConfig {
+        if (lanes < 1 || maxBatchSize < 1 || laneCapacity < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Transfer engine sizes must be positive");
+        }
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("Invalid backoff: " + initialBackoff + " to " + maxBackoff);
+        }
+    }
+
+    public static TransferEngineConfig defaults() {
+        return new TransferEngineConfig(16, 50, 1_000, 10, Duration.ofMillis(2), Duration.ofMillis(200));
+    }
+}
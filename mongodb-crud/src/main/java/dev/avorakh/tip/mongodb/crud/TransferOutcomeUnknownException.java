@@ -0,0 +1,26 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.util.List;
+
+/**
+ * Thrown by {@link TransferEngine} when the commit of a transfer transaction kept failing with an unknown commit
+ * result: the transfers may or may not have been applied. Whether they were can be checked by looking up their
+ * {@code transfer_id} in the {@code transfers} collection; submitting them again without that check may apply
+ * them twice.
+ */
+public class TransferOutcomeUnknownException extends IllegalStateException {
+
+    private final List<String> transferIds;
+
+    public TransferOutcomeUnknownException(List<String> transferIds, Throwable cause) {
+        super("Commit outcome of " + transferIds.size() + " transfers is unknown", cause);
+        this.transferIds = List.copyOf(transferIds);
+    }
+
+    /**
+     * @return ids of the transfers committed by the transaction with the unknown outcome
+     */
+    public List<String> transferIds() {
+        return transferIds;
+    }
+}
@@ -0,0 +1,19 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.util.UUID;
+
+/**
+ * A money transfer between two {@code accounts} documents, identified by their {@code account_id}.
+ *
+ * @param transferId          id recorded in {@code transfers} and in the accounts' {@code transfers_complete}
+ * @param accountIdOfSender   account debited
+ * @param amount              amount moved
+ * @param accountIdOfReceiver account credited
+ */
+public record TransferRequest(
+        String transferId, String accountIdOfSender, double amount, String accountIdOfReceiver) {
+
+    public static TransferRequest of(String accountIdOfSender, double amount, String accountIdOfReceiver) {
+        return new TransferRequest(UUID.randomUUID().toString(), accountIdOfSender, amount, accountIdOfReceiver);
+    }
+}
@@ -0,0 +1,25 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import dev.avorakh.tip.mongodb.instrumentation.LatencySnapshot;
+
+/**
+ * Counters of a {@link TransferEngine}.
+ *
+ * @param transfers       transfers committed
+ * @param transactions    transactions committed, each carrying one batch of transfers
+ * @param conflicts       write conflicts reported by the server
+ * @param retries         transaction attempts repeated after a transient error
+ * @param failures        transfers that could not be committed
+ * @param unknownOutcomes transfers failed with {@link TransferOutcomeUnknownException}, they may have been committed
+ * @param commitLatency   duration of successful transaction attempts, from start to commit
+ * @param transferLatency time from submitting a transfer to its commit
+ */
+public record TransferStats(
+        long transfers,
+        long transactions,
+        long conflicts,
+        long retries,
+        long failures,
+        long unknownOutcomes,
+        LatencySnapshot commitLatency,
+        LatencySnapshot transferLatency) {}
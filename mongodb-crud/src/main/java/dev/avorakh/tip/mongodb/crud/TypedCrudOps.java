@@ -0,0 +1,183 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+/**
+ * The {@link MongoCrudOps} operations on a collection mapped to {@code T} by a codec, e.g. {@link Account} or
+ * {@link Inspection} with the codecs of {@link CrudCodecs}. Reads decode straight into {@code T} and writes encode
+ * from it, skipping the {@code Document} map of {@link MongoCrudOps}.
+ *
+ * <p>Inserted documents get an {@code ObjectId} from the codec when they have none, so the codec of {@code T} has
+ * to be a {@link org.bson.codecs.CollectibleCodec} for {@link #crete} and {@link #create}.
+ *
+ * <p>There is deliberately no whole-document replace: the codecs only map the modeled fields, so writing back a
+ * decoded {@code T} would drop every other field of the stored document. Change documents with {@link #update}.
+ */
+public class TypedCrudOps<T> {
+
+    private final MongoCollection<T> collection;
+    private final List<Consumer<MongoNamespace>> writeListeners = new CopyOnWriteArrayList<>();
+
+    public TypedCrudOps(MongoClient client, String dbName, String collectionName, Class<T> type) {
+        this(client, dbName, collectionName, type, CrudCodecs.registry());
+    }
+
+    public TypedCrudOps(
+            MongoClient client, String dbName, String collectionName, Class<T> type, CodecRegistry codecRegistry) {
+        this.collection =
+                client.getDatabase(dbName).getCollection(collectionName, type).withCodecRegistry(codecRegistry);
+    }
+
+    /**
+     * @see MongoCrudOps#addWriteListener(Consumer)
+     */
+    public void addWriteListener(Consumer<MongoNamespace> listener) {
+        writeListeners.add(listener);
+    }
+
+    private void written(long affectedDocuments) {
+        if (affectedDocuments > 0) {
+            writeListeners.forEach(listener -> listener.accept(collection.getNamespace()));
+        }
+    }
+
+    public ObjectId crete(T document) {
+        var result = collection.insertOne(document);
+        written(1);
+        return toObjectId(result);
+    }
+
+    public ObjectId crete(ClientSession session, T document) {
+        var result = collection.insertOne(session, document);
+        written(1);
+        return toObjectId(result);
+    }
+
+    private ObjectId toObjectId(InsertOneResult result) {
+        return result.getInsertedId().asObjectId().getValue();
+    }
+
+    public List<ObjectId> create(List<T> documents) {
+        var result = collection.insertMany(documents);
+        written(documents.size());
+        return toObjectIds(result);
+    }
+
+    public List<ObjectId> create(ClientSession session, List<T> documents) {
+        var result = collection.insertMany(session, documents);
+        written(documents.size());
+        return toObjectIds(result);
+    }
+
+    private List<ObjectId> toObjectIds(InsertManyResult result) {
+        var insertedIds = new ArrayList<ObjectId>(result.getInsertedIds().size());
+        result.getInsertedIds().forEach((key, value) -> insertedIds.add(value.asObjectId().getValue()));
+        return insertedIds;
+    }
+
+    public List<T> findAll(Bson query) {
+        return collection.find(query).into(new ArrayList<>());
+    }
+
+    public List<T> findAll(ClientSession session, Bson query) {
+        return collection.find(session, query).into(new ArrayList<>());
+    }
+
+    public Optional<T> find(Bson query) {
+        return Optional.ofNullable(collection.find(query).first());
+    }
+
+    public Optional<T> find(ClientSession session, Bson query) {
+        return Optional.ofNullable(collection.find(session, query).first());
+    }
+
+    /**
+     * @see MongoCrudOps#stream(Bson, CursorOptions)
+     */
+    public Stream<T> stream(Bson query, CursorOptions options) {
+        return toStream(options.applyTo(collection.find(query)));
+    }
+
+    public Stream<T> stream(ClientSession session, Bson query, CursorOptions options) {
+        return toStream(options.applyTo(collection.find(session, query)));
+    }
+
+    public void forEach(Bson query, CursorOptions options, Consumer<? super T> action) {
+        try (Stream<T> documents = stream(query, options)) {
+            documents.forEach(action);
+        }
+    }
+
+    private static <T> Stream<T> toStream(FindIterable<T> iterable) {
+        MongoCursor<T> cursor = iterable.iterator();
+        var spliterator = Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
+    }
+
+    public boolean update(Bson query, Bson updates) {
+        long modified = collection.updateOne(query, updates).getModifiedCount();
+        written(modified);
+        return modified == 1;
+    }
+
+    public boolean update(ClientSession session, Bson query, Bson updates) {
+        long modified = collection.updateOne(session, query, updates).getModifiedCount();
+        written(modified);
+        return modified == 1;
+    }
+
+    public long updateAll(Bson query, Bson updates) {
+        long modified = collection.updateMany(query, updates).getModifiedCount();
+        written(modified);
+        return modified;
+    }
+
+    public long updateAll(ClientSession session, Bson query, Bson updates) {
+        long modified = collection.updateMany(session, query, updates).getModifiedCount();
+        written(modified);
+        return modified;
+    }
+
+    public boolean delete(Bson query) {
+        long deleted = collection.deleteOne(query).getDeletedCount();
+        written(deleted);
+        return deleted == 1;
+    }
+
+    public boolean delete(ClientSession session, Bson query) {
+        long deleted = collection.deleteOne(session, query).getDeletedCount();
+        written(deleted);
+        return deleted == 1;
+    }
+
+    public long deleteAll(Bson query) {
+        long deleted = collection.deleteMany(query).getDeletedCount();
+        written(deleted);
+        return deleted;
+    }
+
+    public long deleteAll(ClientSession session, Bson query) {
+        long deleted = collection.deleteMany(session, query).getDeletedCount();
+        written(deleted);
+        return deleted;
+    }
+}
@@ -0,0 +1,117 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.TransactionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import dev.avorakh.tip.mongodb.instrumentation.LatencyRecorder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs groups of {@link MongoCrudOps} calls on pooled sessions of one client instead of starting a session per
+ * unit of work.
+ *
+ * <p>{@link #inTransaction} commits the calls made with the given session atomically, with the configured read
+ * and write concerns. {@link #readYourWrites} runs them in a causally consistent session without a transaction,
+ * so reads through {@link MongoCrudOps#forCausalReads(ReadPreference)} may be served by secondaries and still
+ * observe the writes made before them in the same unit.
+ *
+ * <pre>{@code
+ * try (var unitOfWork = new UnitOfWork(client, UnitOfWorkConfig.defaults())) {
+ *     unitOfWork.inTransaction(session -> {
+ *         accounts.update(session, from, debit);
+ *         return accounts.update(session, to, credit);
+ *     });
+ * }
+ * }</pre>
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    private final SessionPool sessions;
+    private final TransactionOptions transactionOptions;
+
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder causalUnits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyRecorder acquisitionLatency = new LatencyRecorder();
+    private final LatencyRecorder transactionLatency = new LatencyRecorder();
+
+    public UnitOfWork(MongoClient client, UnitOfWorkConfig config) {
+        this.sessions = new SessionPool(client, config.poolSize(), config.maxIdle());
+        this.transactionOptions = config.transactionOptions();
+    }
+
+    /**
+     * Runs the work in a transaction on a pooled session and commits it. The driver retries the whole work on
+     * transient transaction errors and the commit on unknown commit results, so the work must be safe to repeat.
+     *
+     * @return result of the work
+     */
+    public <T> T inTransaction(Function<ClientSession, T> work) {
+        ClientSession session = acquire();
+        boolean reusable = false;
+        try {
+            long start = System.nanoTime();
+            T result = session.withTransaction(() -> work.apply(session), transactionOptions);
+            transactionLatency.record(System.nanoTime() - start);
+            transactions.increment();
+            reusable = true;
+            return result;
+        } finally {
+            release(session, reusable);
+        }
+    }
+
+    /**
+     * Runs the work on a pooled causally consistent session without a transaction. Each operation in the session
+     * observes the ones before it, on whichever member it runs, as long as reads and writes use majority concerns;
+     * {@link MongoCrudOps#forCausalReads(ReadPreference)} configures both.
+     *
+     * @return result of the work
+     */
+    public <T> T readYourWrites(Function<ClientSession, T> work) {
+        ClientSession session = acquire();
+        boolean reusable = false;
+        try {
+            T result = work.apply(session);
+            causalUnits.increment();
+            reusable = true;
+            return result;
+        } finally {
+            release(session, reusable);
+        }
+    }
+
+    public UnitOfWorkStats stats() {
+        return new UnitOfWorkStats(
+                transactions.sum(),
+                causalUnits.sum(),
+                failures.sum(),
+                sessions.created(),
+                acquisitionLatency.snapshot(),
+                transactionLatency.snapshot());
+    }
+
+    private ClientSession acquire() {
+        long start = System.nanoTime();
+        ClientSession session = sessions.acquire();
+        acquisitionLatency.record(System.nanoTime() - start);
+        return session;
+    }
+
+    private void release(ClientSession session, boolean reusable) {
+        if (!reusable) {
+            failures.increment();
+        }
+        sessions.release(session, reusable);
+    }
+
+    /**
+     * Closes the idle sessions; sessions still in use are closed when their unit of work ends.
+     */
+    @Override
+    public void close() {
+        sessions.close();
+    }
+}
@@ -0,0 +1,65 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of a {@link UnitOfWork}.
+ *
+ * @param poolSize      sessions held at most, callers beyond it wait for a session to be released
+ * @param maxIdle       time a pooled session may stay unused before it is closed instead of reused
+ * @param readConcern   read concern of the transactions
+ * @param writeConcern  write concern of the transactions
+ * @param maxCommitTime upper bound of a single commit on the server, {@code null} keeps the server default
+ */
+public record UnitOfWorkConfig(
+        int poolSize, Duration maxIdle, ReadConcern readConcern, WriteConcern writeConcern, Duration maxCommitTime) {
+
+    public UnitOfWorkConfig {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be positive: " + poolSize);
+        }
+        if (maxIdle.isNegative() || maxIdle.isZero()) {
+            throw new IllegalArgumentException("maxIdle must be positive: " + maxIdle);
+        }
+    }
+
+    /**
+     * Sixteen sessions idling at most ten minutes, well below the server's thirty minute session timeout, running
+     * snapshot transactions committed with majority write concern.
+     */
+    public static UnitOfWorkConfig defaults() {
+        return new UnitOfWorkConfig(16, Duration.ofMinutes(10), ReadConcern.SNAPSHOT, WriteConcern.MAJORITY, null);
+    }
+
+    public UnitOfWorkConfig withPoolSize(int poolSize) {
+        return new UnitOfWorkConfig(poolSize, maxIdle, readConcern, writeConcern, maxCommitTime);
+    }
+
+    public UnitOfWorkConfig withMaxIdle(Duration maxIdle) {
+        return new UnitOfWorkConfig(poolSize, maxIdle, readConcern, writeConcern, maxCommitTime);
+    }
+
+    public UnitOfWorkConfig withReadConcern(ReadConcern readConcern) {
+        return new UnitOfWorkConfig(poolSize, maxIdle, readConcern, writeConcern, maxCommitTime);
+    }
+
+    public UnitOfWorkConfig withWriteConcern(WriteConcern writeConcern) {
+        return new UnitOfWorkConfig(poolSize, maxIdle, readConcern, writeConcern, maxCommitTime);
+    }
+
+    public UnitOfWorkConfig withMaxCommitTime(Duration maxCommitTime) {
+        return new UnitOfWorkConfig(poolSize, maxIdle, readConcern, writeConcern, maxCommitTime);
+    }
+
+    TransactionOptions transactionOptions() {
+        var builder = TransactionOptions.builder().readConcern(readConcern).writeConcern(writeConcern);
+        if (maxCommitTime != null) {
+            builder.maxCommitTime(maxCommitTime.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+}
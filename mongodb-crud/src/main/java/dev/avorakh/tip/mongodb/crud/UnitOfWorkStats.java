@@ -0,0 +1,21 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import dev.avorakh.tip.mongodb.instrumentation.LatencySnapshot;
+
+/**
+ * Counters of a {@link UnitOfWork}.
+ *
+ * @param transactions       transactions committed
+ * @param causalUnits        read-your-writes units completed
+ * @param failures           units of work that threw, their sessions are closed rather than pooled
+ * @param sessionsCreated    sessions started on the client, the rest of the acquisitions reused a pooled session
+ * @param acquisitionLatency time spent waiting for a session
+ * @param transactionLatency duration of committed transactions, work and commit, retries included
+ */
+public record UnitOfWorkStats(
+        long transactions,
+        long causalUnits,
+        long failures,
+        long sessionsCreated,
+        LatencySnapshot acquisitionLatency,
+        LatencySnapshot transactionLatency) {}
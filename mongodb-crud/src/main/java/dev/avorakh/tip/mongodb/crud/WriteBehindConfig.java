@@ -0,0 +1,27 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link WriteBehindWriter}.
+ *
+ * @param maxBatchSize  operations sent in a single {@code bulkWrite}; a full batch is flushed immediately
+ * @param maxDelay      how long the first queued operation may wait for the batch to fill up
+ * @param queueCapacity pending operations accepted before producers block
+ */
+public record WriteBehindConfig(int maxBatchSize, Duration maxDelay, int queueCapacity) {
+
+    public WriteBehindConfig {
+        if (maxBatchSize < 1 || queueCapacity < maxBatchSize) {
+            throw new IllegalArgumentException(
+                    "Invalid write-behind sizes: batch=" + maxBatchSize + ", queue=" + queueCapacity);
+        }
+        if (maxDelay.isNegative() || maxDelay.isZero()) {
+            throw new IllegalArgumentException("maxDelay must be positive: " + maxDelay);
+        }
+    }
+
+    public static WriteBehindConfig defaults() {
+        return new WriteBehindConfig(500, Duration.ofMillis(5), 10_000);
+    }
+}
@@ -0,0 +1,273 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+/**
+ * Opt-in write-behind mode of {@link MongoCrudOps}: single-document inserts, updates and deletes from any number
+ * of threads are queued and coalesced into unordered {@code bulkWrite} calls on the collection, flushed when a
+ * batch is full or the oldest queued operation has waited {@link WriteBehindConfig#maxDelay()}.
+ *
+ * <p>The queue is bounded, producers block once {@link WriteBehindConfig#queueCapacity()} operations are
+ * pending. Every operation gets its own future with the result the synchronous {@link MongoCrudOps} method would
+ * have returned. A bulk write reports one modified and one deleted count for all of its operations, so a batch is
+ * sent as calls that carry at most one update and one delete each, the inserts all go with the first call.
+ */
+public class WriteBehindWriter implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(WriteBehindWriter.class.getName());
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final MongoCollection<Document> collection;
+    private final WriteBehindConfig config;
+    private final LongConsumer written;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread flusher;
+    // producers hold the read lock from the running check until their operation is queued, close takes the write
+    // lock to stop accepting, so no operation is queued after the flusher drained the queue for the last time
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    /**
+     * @param written told the number of documents each bulk write inserted, modified or deleted
+     */
+    WriteBehindWriter(MongoCollection<Document> collection, WriteBehindConfig config, LongConsumer written) {
+        this.collection = collection;
+        this.config = config;
+        this.written = written;
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity());
+        this.flusher = Thread.ofPlatform()
+                .name("write-behind-" + collection.getNamespace().getFullName())
+                .daemon(true)
+                .start(this::runFlusher);
+    }
+
+    public CompletableFuture<ObjectId> crete(Document document) {
+        if (!document.containsKey("_id")) {
+            document.append("_id", new ObjectId());
+        }
+        var result = new CompletableFuture<ObjectId>();
+        enqueue(new PendingInsert(new InsertOneModel<>(document), document.getObjectId("_id"), result), result);
+        return result;
+    }
+
+    public CompletableFuture<Boolean> update(Bson query, Bson updates) {
+        var result = new CompletableFuture<Boolean>();
+        enqueue(new PendingChange(new UpdateOneModel<>(query, updates), result), result);
+        return result;
+    }
+
+    public CompletableFuture<Boolean> delete(Bson query) {
+        var result = new CompletableFuture<Boolean>();
+        enqueue(new PendingChange(new DeleteOneModel<>(query), result), result);
+        return result;
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting operations, flushes everything still queued and waits for the flusher to finish.
+     */
+    @Override
+    public void close() {
+        acceptLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued(new IllegalStateException("Write-behind writer is closed"));
+    }
+
+    private void enqueue(PendingWrite write, CompletableFuture<?> result) {
+        acceptLock.readLock().lock();
+        try {
+            if (!running) {
+                result.completeExceptionally(new IllegalStateException("Write-behind writer is closed"));
+                return;
+            }
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    private void failQueued(Throwable error) {
+        for (PendingWrite write = queue.poll(); write != null; write = queue.poll()) {
+            write.fail(error);
+        }
+    }
+
+    private void runFlusher() {
+        List<PendingWrite> batch = new ArrayList<>(config.maxBatchSize());
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingWrite first = queue.poll(config.maxDelay().toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            var error = new IllegalStateException("Write-behind flusher was interrupted", e);
+            batch.forEach(write -> write.fail(error));
+            failQueued(error);
+        }
+    }
+
+    private void fillBatch(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + config.maxDelay().toNanos();
+        queue.drainTo(batch, config.maxBatchSize() - batch.size());
+        while (batch.size() < config.maxBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, config.maxBatchSize() - batch.size());
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<PendingWrite> inserts = new ArrayList<>();
+        List<PendingWrite> updates = new ArrayList<>();
+        List<PendingWrite> deletes = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write instanceof PendingInsert) {
+                inserts.add(write);
+            } else if (write.model() instanceof UpdateOneModel) {
+                updates.add(write);
+            } else {
+                deletes.add(write);
+            }
+        }
+        int calls = Math.max(1, Math.max(updates.size(), deletes.size()));
+        for (int i = 0; i < calls; i++) {
+            List<PendingWrite> call = new ArrayList<>(i == 0 ? inserts : List.of());
+            if (i < updates.size()) {
+                call.add(updates.get(i));
+            }
+            if (i < deletes.size()) {
+                call.add(deletes.get(i));
+            }
+            send(call);
+        }
+    }
+
+    private void send(List<PendingWrite> call) {
+        List<WriteModel<Document>> models = new ArrayList<>(call.size());
+        call.forEach(write -> models.add(write.model()));
+        try {
+            BulkWriteResult result = collection.bulkWrite(models, UNORDERED);
+            notifyWritten(result);
+            complete(call, result, Map.of(), null);
+        } catch (MongoBulkWriteException e) {
+            notifyWritten(e.getWriteResult());
+            if (e.getWriteConcernError() != null) {
+                call.forEach(write -> write.fail(e));
+                return;
+            }
+            Map<Integer, BulkWriteError> errors = new HashMap<>();
+            e.getWriteErrors().forEach(error -> errors.put(error.getIndex(), error));
+            complete(call, e.getWriteResult(), errors, e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "❌ Write-behind flush of " + call.size() + " operations failed", e);
+            call.forEach(write -> write.fail(e));
+        }
+    }
+
+    private void notifyWritten(BulkWriteResult result) {
+        long applied = result.getInsertedCount() + result.getModifiedCount() + result.getDeletedCount();
+        try {
+            written.accept(applied);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "❌ Write listener failed after a write-behind flush", e);
+        }
+    }
+
+    /**
+     * Completes the operations of a call with at most one update and one delete, whose counts are then their own.
+     */
+    private static void complete(
+            List<PendingWrite> call,
+            BulkWriteResult result,
+            Map<Integer, BulkWriteError> errors,
+            MongoBulkWriteException exception) {
+        for (int i = 0; i < call.size(); i++) {
+            PendingWrite write = call.get(i);
+            BulkWriteError error = errors.get(i);
+            if (error != null) {
+                write.fail(new MongoWriteException(error, exception.getServerAddress(), exception.getErrorLabels()));
+            } else if (write instanceof PendingInsert insert) {
+                insert.result().complete(insert.id());
+            } else if (write instanceof PendingChange change) {
+                long count = change.model() instanceof UpdateOneModel
+                        ? result.getModifiedCount()
+                        : result.getDeletedCount();
+                change.result().complete(count == 1);
+            }
+        }
+    }
+
+    private sealed interface PendingWrite permits PendingInsert, PendingChange {
+        WriteModel<Document> model();
+
+        void fail(Throwable error);
+    }
+
+    private record PendingInsert(WriteModel<Document> model, ObjectId id, CompletableFuture<ObjectId> result)
+            implements PendingWrite {
+        @Override
+        public void fail(Throwable error) {
+            result.completeExceptionally(error);
+        }
+    }
+
+    private record PendingChange(WriteModel<Document> model, CompletableFuture<Boolean> result)
+            implements PendingWrite {
+        @Override
+        public void fail(Throwable error) {
+            result.completeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class RollupGranularityTest {
+
+    private static final Instant INSIDE = Instant.parse("2026-03-14T15:09:26.535Z");
+    private static final Instant HOUR_START = Instant.parse("2026-03-14T15:00:00Z");
+    private static final Instant DAY_START = Instant.parse("2026-03-14T00:00:00Z");
+
+    @Test
+    void unitsMatchDateTrunc() {
+        assertEquals("hour", RollupGranularity.HOUR.unit());
+        assertEquals("day", RollupGranularity.DAY.unit());
+    }
+
+    @Test
+    void truncateReturnsStartOfTheBucket() {
+        assertEquals(HOUR_START, RollupGranularity.HOUR.truncate(INSIDE));
+        assertEquals(DAY_START, RollupGranularity.DAY.truncate(INSIDE));
+        assertEquals(HOUR_START, RollupGranularity.HOUR.truncate(HOUR_START));
+    }
+
+    @Test
+    void truncateAlignsToUtc() {
+        Instant lateEvening = Instant.parse("2026-03-14T23:59:59.999Z");
+
+        assertEquals(DAY_START, RollupGranularity.DAY.truncate(lateEvening));
+        assertEquals(Instant.parse("2026-03-14T23:00:00Z"), RollupGranularity.HOUR.truncate(lateEvening));
+    }
+
+    @Test
+    void ceilReturnsStartOfTheNextBucket() {
+        assertEquals(Instant.parse("2026-03-14T16:00:00Z"), RollupGranularity.HOUR.ceil(INSIDE));
+        assertEquals(Instant.parse("2026-03-15T00:00:00Z"), RollupGranularity.DAY.ceil(INSIDE));
+    }
+
+    @Test
+    void ceilKeepsBucketBoundaries() {
+        assertEquals(HOUR_START, RollupGranularity.HOUR.ceil(HOUR_START));
+        assertEquals(DAY_START, RollupGranularity.DAY.ceil(DAY_START));
+        assertEquals(HOUR_START.plusSeconds(3600), RollupGranularity.HOUR.ceil(HOUR_START.plusNanos(1)));
+    }
+}
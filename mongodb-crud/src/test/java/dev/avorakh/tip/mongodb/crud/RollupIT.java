@@ -0,0 +1,102 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Rebuilds rollups against a disposable MongoDB 7.0, skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RollupIT {
+
+    private static final Instant DAY = Instant.parse("2024-05-01T00:00:00Z");
+    private static final Instant NINE = DAY.plusSeconds(9 * 3600);
+    private static final RollupDefinition DEFINITION =
+            new RollupDefinition("transfer_rollups", "last_updated", List.of("from_account"), "amount");
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private MongoCollection<Document> transfers;
+    private Rollup rollup;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl());
+    }
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+    @BeforeEach
+    void createRollup() {
+        MongoDatabase database = client.getDatabase("rollups");
+        database.drop();
+        transfers = database.getCollection("transfers");
+        rollup = new Rollup(database, "transfers", DEFINITION);
+        rollup.ensureIndex();
+    }
+
+    @Test
+    void rebuildDropsBucketsWhoseSourceDocumentsAreGone() {
+        transfers.insertMany(List.of(
+                transfer(1, "MDB1", NINE.plusSeconds(60), 100),
+                transfer(2, "MDB1", NINE.plusSeconds(120), 50),
+                transfer(3, "MDB2", NINE.plusSeconds(180), 20)));
+        rollup.rebuild(NINE, NINE.plusSeconds(3600));
+
+        transfers.updateOne(eq("_id", 1), set("from_account", "MDB2"));
+        transfers.deleteOne(eq("_id", 2));
+        rollup.rebuild(NINE, NINE.plusSeconds(3600));
+
+        List<RollupBucket> hours = rollup.buckets(RollupGranularity.HOUR, DAY, DAY.plusSeconds(86_400), null);
+        assertEquals(
+                List.of(new RollupBucket(RollupGranularity.HOUR, NINE, Map.of("from_account", "MDB2"), 2, 120)), hours);
+        List<RollupBucket> days = rollup.buckets(RollupGranularity.DAY, DAY, DAY.plusSeconds(86_400), null);
+        assertEquals(
+                List.of(new RollupBucket(RollupGranularity.DAY, DAY, Map.of("from_account", "MDB2"), 2, 120)), days);
+    }
+
+    @Test
+    void rebuildKeepsBucketsOutsideTheRange() {
+        transfers.insertMany(List.of(
+                transfer(1, "MDB1", NINE.plusSeconds(60), 100), transfer(2, "MDB1", NINE.plusSeconds(3660), 30)));
+        rollup.rebuild(NINE, NINE.plusSeconds(7200));
+
+        transfers.deleteOne(eq("_id", 1));
+        rollup.rebuild(NINE.plusSeconds(3600), NINE.plusSeconds(7200));
+
+        List<RollupBucket> hours = rollup.buckets(RollupGranularity.HOUR, DAY, DAY.plusSeconds(86_400), null);
+        assertEquals(2, hours.size());
+        assertEquals(100, hours.getFirst().sum());
+        assertEquals(30, hours.getLast().sum());
+    }
+
+    private static Document transfer(int id, String fromAccount, Instant time, int amount) {
+        return new Document("_id", id)
+                .append("from_account", fromAccount)
+                .append("last_updated", Date.from(time))
+                .append("amount", amount);
+    }
+}
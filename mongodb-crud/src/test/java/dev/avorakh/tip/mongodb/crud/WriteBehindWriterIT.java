@@ -0,0 +1,137 @@
+package dev.avorakh.tip.mongodb.crud;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.inc;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the write-behind writer against a disposable MongoDB 7.0, skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class WriteBehindWriterIT {
+
+    private static final String DB_NAME = "write_behind";
+    private static final String COLLECTION_NAME = "accounts";
+    private static final WriteBehindConfig CONFIG = new WriteBehindConfig(50, Duration.ofMillis(20), 1_000);
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private MongoCollection<Document> accounts;
+    private MongoCrudOps crudOps;
+    private final AtomicInteger writeNotifications = new AtomicInteger();
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl());
+    }
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+    @BeforeEach
+    void createCollection() {
+        client.getDatabase(DB_NAME).drop();
+        accounts = client.getDatabase(DB_NAME).getCollection(COLLECTION_NAME);
+        crudOps = new MongoCrudOps(client, DB_NAME, COLLECTION_NAME);
+        crudOps.addWriteListener(namespace -> writeNotifications.incrementAndGet());
+    }
+
+    @Test
+    void everyOperationCompletesWithItsOwnResult() {
+        try (var writer = crudOps.writeBehind(CONFIG)) {
+            List<CompletableFuture<ObjectId>> inserts = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                inserts.add(writer.crete(new Document("account_id", i * 2).append("balance", 0)));
+            }
+            inserts.forEach(CompletableFuture::join);
+
+            List<CompletableFuture<Boolean>> updates = new ArrayList<>();
+            List<CompletableFuture<Boolean>> deletes = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                // only even account ids exist, so every other update and delete finds nothing
+                updates.add(writer.update(eq("account_id", i * 2 + i % 2), inc("balance", 10)));
+                deletes.add(writer.delete(eq("account_id", 100 + i * 2 + i % 2)));
+            }
+
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i % 2 == 0, updates.get(i).join(), "update " + i);
+                assertEquals(i % 2 == 0, deletes.get(i).join(), "delete " + i);
+            }
+        }
+        assertEquals(90, accounts.countDocuments());
+        assertEquals(10, accounts.countDocuments(eq("balance", 10)));
+    }
+
+    @Test
+    void duplicateKeyFailsOnlyItsOwnInsert() {
+        var id = new ObjectId();
+        try (var writer = crudOps.writeBehind(CONFIG)) {
+            var first = writer.crete(new Document("_id", id));
+            var second = writer.crete(new Document("_id", id));
+            var other = writer.crete(new Document("account_id", 1));
+
+            assertEquals(id, first.join());
+            var error = assertThrows(CompletionException.class, second::join);
+            assertInstanceOf(MongoWriteException.class, error.getCause());
+            assertEquals(other.join(), accounts.find(eq("account_id", 1)).first().getObjectId("_id"));
+        }
+    }
+
+    @Test
+    void listenersAreToldOnlyOfAppliedWrites() {
+        accounts.insertOne(new Document("account_id", 1).append("balance", 0));
+        try (var writer = crudOps.writeBehind(CONFIG)) {
+            writer.update(eq("account_id", 2), inc("balance", 1)).join();
+            writer.delete(eq("account_id", 3)).join();
+
+            assertEquals(0, writeNotifications.get());
+
+            writer.update(eq("account_id", 1), inc("balance", 1)).join();
+
+            assertEquals(1, writeNotifications.get());
+        }
+    }
+
+    @Test
+    void closeFlushesQueuedOperationsAndRejectsNewOnes() {
+        var writer = crudOps.writeBehind(CONFIG);
+        List<CompletableFuture<ObjectId>> inserts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            inserts.add(writer.crete(new Document("account_id", i)));
+        }
+
+        writer.close();
+
+        inserts.forEach(insert -> assertEquals(ObjectId.class, insert.join().getClass()));
+        assertEquals(10, accounts.countDocuments());
+        var rejected = writer.crete(new Document("account_id", 10));
+        var error = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+}
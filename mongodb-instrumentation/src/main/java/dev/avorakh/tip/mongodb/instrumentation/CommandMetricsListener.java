@@ -0,0 +1,74 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+/**
+ * Reports the latency of every database command, and optionally the size of its command and reply documents, to
+ * a {@link MetricsSink}.
+ */
+class CommandMetricsListener implements CommandListener {
+
+    private static final BsonDocumentCodec DOCUMENT_CODEC = new BsonDocumentCodec();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final MetricsSink sink;
+    private final boolean trackPayload;
+    private final Map<Integer, Long> bytesSentByRequest = new ConcurrentHashMap<>();
+
+    CommandMetricsListener(MetricsSink sink, boolean trackPayload) {
+        this.sink = sink;
+        this.trackPayload = trackPayload;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (trackPayload) {
+            bytesSentByRequest.put(event.getRequestId(), sizeOf(event.getCommand()));
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        sink.recordCommand(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+        if (trackPayload) {
+            Long bytesSent = bytesSentByRequest.remove(event.getRequestId());
+            sink.recordPayload(
+                    event.getCommandName(), bytesSent == null ? 0 : bytesSent, sizeOf(event.getResponse()));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        sink.recordCommand(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+        if (trackPayload) {
+            Long bytesSent = bytesSentByRequest.remove(event.getRequestId());
+            sink.recordPayload(event.getCommandName(), bytesSent == null ? 0 : bytesSent, 0);
+        }
+    }
+
+    private static long sizeOf(BsonDocument document) {
+        if (document == null) {
+            return 0;
+        }
+        if (document instanceof RawBsonDocument raw) {
+            return raw.getByteBuffer().remaining();
+        }
+        try (var buffer = new BasicOutputBuffer();
+                var writer = new BsonBinaryWriter(buffer)) {
+            DOCUMENT_CODEC.encode(writer, document, ENCODER_CONTEXT);
+            return buffer.getPosition();
+        }
+    }
+}
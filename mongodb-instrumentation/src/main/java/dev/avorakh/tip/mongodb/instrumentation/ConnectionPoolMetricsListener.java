@@ -0,0 +1,81 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reports connection checkout wait times and the in-use and idle connection counts of every server's pool to a
+ * {@link MetricsSink}.
+ */
+class ConnectionPoolMetricsListener implements ConnectionPoolListener {
+
+    private final MetricsSink sink;
+    private final Map<ServerAddress, PoolCounters> pools = new ConcurrentHashMap<>();
+
+    ConnectionPoolMetricsListener(MetricsSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        var address = event.getConnectionId().getServerId().getAddress();
+        report(address, counters(address).opened(1));
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        var address = event.getConnectionId().getServerId().getAddress();
+        report(address, counters(address).opened(-1));
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        sink.recordCheckout(event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+        var address = event.getConnectionId().getServerId().getAddress();
+        report(address, counters(address).checkedOut(1));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        sink.recordCheckout(event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        var address = event.getConnectionId().getServerId().getAddress();
+        report(address, counters(address).checkedOut(-1));
+    }
+
+    private PoolCounters counters(ServerAddress address) {
+        return pools.computeIfAbsent(address, ignored -> new PoolCounters());
+    }
+
+    private void report(ServerAddress address, PoolCounters counters) {
+        int inUse = counters.inUse.get();
+        sink.recordPoolUsage(address.toString(), inUse, Math.max(0, counters.open.get() - inUse));
+    }
+
+    private static final class PoolCounters {
+        private final AtomicInteger open = new AtomicInteger();
+        private final AtomicInteger inUse = new AtomicInteger();
+
+        PoolCounters opened(int delta) {
+            open.addAndGet(delta);
+            return this;
+        }
+
+        PoolCounters checkedOut(int delta) {
+            inUse.addAndGet(delta);
+            return this;
+        }
+    }
+}
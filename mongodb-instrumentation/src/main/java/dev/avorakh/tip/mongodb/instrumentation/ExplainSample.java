@@ -0,0 +1,82 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+
+/**
+ * The execution statistics of one {@code explain} with {@code executionStats} verbosity.
+ *
+ * @param docsExamined  documents the winning plan fetched
+ * @param keysExamined  index keys the winning plan scanned
+ * @param returned      documents the plan returned
+ * @param executionTime server-side execution time in milliseconds
+ * @param plan          {@code COLLSCAN}, {@code IXSCAN <index name>} or the root stage of the winning plan
+ */
+public record ExplainSample(long docsExamined, long keysExamined, long returned, long executionTime, String plan) {
+
+    private static final BsonInt32 ZERO = new BsonInt32(0);
+
+    /**
+     * Reads the explain output of a {@code find}, or of an {@code aggregate} whose statistics are reported either
+     * at the top level or under its {@code $cursor} stage.
+     */
+    public static ExplainSample of(BsonDocument explain) {
+        BsonDocument source = cursorStage(explain);
+        BsonDocument stats = source.getDocument("executionStats", new BsonDocument());
+        BsonDocument winningPlan =
+                source.getDocument("queryPlanner", new BsonDocument()).getDocument("winningPlan", new BsonDocument());
+        return new ExplainSample(
+                stats.getNumber("totalDocsExamined", ZERO).longValue(),
+                stats.getNumber("totalKeysExamined", ZERO).longValue(),
+                stats.getNumber("nReturned", ZERO).longValue(),
+                stats.getNumber("executionTimeMillis", ZERO).longValue(),
+                plan(winningPlan.getDocument("queryPlan", winningPlan)));
+    }
+
+    public boolean isCollectionScan() {
+        return plan.equals("COLLSCAN");
+    }
+
+    private static BsonDocument cursorStage(BsonDocument explain) {
+        if (explain.containsKey("executionStats")) {
+            return explain;
+        }
+        BsonArray stages = explain.getArray("stages", new BsonArray());
+        if (!stages.isEmpty() && stages.get(0).asDocument().isDocument("$cursor")) {
+            return stages.get(0).asDocument().getDocument("$cursor");
+        }
+        return explain;
+    }
+
+    private static String plan(BsonDocument winningPlan) {
+        List<BsonDocument> stages = new ArrayList<>();
+        collectStages(winningPlan, stages);
+        for (BsonDocument stage : stages) {
+            if (stage.getString("stage").getValue().equals("COLLSCAN")) {
+                return "COLLSCAN";
+            }
+        }
+        for (BsonDocument stage : stages) {
+            if (stage.isString("indexName")) {
+                return "IXSCAN " + stage.getString("indexName").getValue();
+            }
+        }
+        return stages.isEmpty() ? "UNKNOWN" : stages.get(0).getString("stage").getValue();
+    }
+
+    private static void collectStages(BsonValue value, List<BsonDocument> stages) {
+        if (value.isDocument()) {
+            BsonDocument document = value.asDocument();
+            if (document.isString("stage")) {
+                stages.add(document);
+            }
+            document.values().forEach(child -> collectStages(child, stages));
+        } else if (value.isArray()) {
+            value.asArray().forEach(child -> collectStages(child, stages));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process {@link MetricsSink} that keeps a latency histogram per command name, a checkout wait histogram,
+ * byte counters and the latest pool usage per server.
+ */
+public class HistogramMetricsSink implements MetricsSink {
+
+    private final Map<String, LatencyRecorder> commandLatencies = new ConcurrentHashMap<>();
+    private final LongAdder failedCommands = new LongAdder();
+    private final LatencyRecorder checkoutWait = new LatencyRecorder();
+    private final LongAdder failedCheckouts = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final Map<String, PoolUsage> poolUsage = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordCommand(String commandName, long durationNanos, boolean succeeded) {
+        commandLatencies
+                .computeIfAbsent(commandName, ignored -> new LatencyRecorder())
+                .record(durationNanos);
+        if (!succeeded) {
+            failedCommands.increment();
+        }
+    }
+
+    @Override
+    public void recordPayload(String commandName, long sent, long received) {
+        bytesSent.add(sent);
+        bytesReceived.add(received);
+    }
+
+    @Override
+    public void recordCheckout(long waitNanos, boolean succeeded) {
+        checkoutWait.record(waitNanos);
+        if (!succeeded) {
+            failedCheckouts.increment();
+        }
+    }
+
+    @Override
+    public void recordPoolUsage(String server, int inUse, int idle) {
+        poolUsage.put(server, new PoolUsage(server, inUse, idle));
+    }
+
+    /**
+     * @return latency distribution per command name, sorted by name
+     */
+    public Map<String, LatencySnapshot> commandLatencies() {
+        Map<String, LatencySnapshot> snapshots = new TreeMap<>();
+        commandLatencies.forEach((name, recorder) -> snapshots.put(name, recorder.snapshot()));
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    public long failedCommands() {
+        return failedCommands.sum();
+    }
+
+    public LatencySnapshot checkoutWait() {
+        return checkoutWait.snapshot();
+    }
+
+    public long failedCheckouts() {
+        return failedCheckouts.sum();
+    }
+
+    public long bytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long bytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public Map<String, PoolUsage> poolUsage() {
+        return Map.copyOf(poolUsage);
+    }
+
+    /**
+     * @return multi-line, human-readable summary of everything recorded so far
+     */
+    public String report() {
+        var report = new StringBuilder("MongoDB driver metrics");
+        commandLatencies().forEach((name, latency) ->
+                report.append(System.lineSeparator()).append("  ").append(name).append(": ").append(latency));
+        report.append(System.lineSeparator())
+                .append("  failed commands: ")
+                .append(failedCommands())
+                .append(System.lineSeparator())
+                .append("  checkout wait: ")
+                .append(checkoutWait())
+                .append(", failed: ")
+                .append(failedCheckouts())
+                .append(System.lineSeparator())
+                .append("  bytes sent: ")
+                .append(bytesSent())
+                .append(", received: ")
+                .append(bytesReceived());
+        poolUsage().values().forEach(usage -> report.append(System.lineSeparator())
+                .append("  pool ")
+                .append(usage.server())
+                .append(": in use ")
+                .append(usage.inUse())
+                .append(", idle ")
+                .append(usage.idle()));
+        return report.toString();
+    }
+}
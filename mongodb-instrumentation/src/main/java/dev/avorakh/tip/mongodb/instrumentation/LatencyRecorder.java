@@ -0,0 +1,40 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Lock-free latency histogram with three significant digits of precision, recording in nanoseconds. Values above
+ * {@value #MAX_TRACKABLE_MINUTES} minutes are clamped.
+ */
+public class LatencyRecorder {
+
+    private static final long MAX_TRACKABLE_MINUTES = 10;
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(MAX_TRACKABLE_MINUTES);
+
+    private final Histogram histogram = new ConcurrentHistogram(MAX_TRACKABLE_NANOS, 3);
+
+    public void record(long durationNanos) {
+        histogram.recordValue(Math.max(0, Math.min(durationNanos, MAX_TRACKABLE_NANOS)));
+    }
+
+    public void record(Duration duration) {
+        record(duration.toNanos());
+    }
+
+    public LatencySnapshot snapshot() {
+        Histogram copy = histogram.copy();
+        return new LatencySnapshot(
+                copy.getTotalCount(),
+                Duration.ofNanos((long) copy.getMean()),
+                Duration.ofNanos(copy.getValueAtPercentile(50)),
+                Duration.ofNanos(copy.getValueAtPercentile(99)),
+                Duration.ofNanos(copy.getMaxValue()));
+    }
+
+    public void reset() {
+        histogram.reset();
+    }
+}
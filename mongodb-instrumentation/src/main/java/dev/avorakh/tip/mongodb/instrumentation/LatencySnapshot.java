@@ -0,0 +1,26 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import java.time.Duration;
+
+/**
+ * Latency distribution recorded by a {@link LatencyRecorder}.
+ *
+ * @param count number of recorded values
+ * @param mean  mean latency
+ * @param p50   median latency
+ * @param p99   99th percentile latency
+ * @param max   highest recorded latency
+ */
+public record LatencySnapshot(long count, Duration mean, Duration p50, Duration p99, Duration max) {
+
+    @Override
+    public String toString() {
+        return String.format(
+                "count=%d, mean=%.3f ms, p50=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                count, millis(mean), millis(p50), millis(p99), millis(max));
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+}
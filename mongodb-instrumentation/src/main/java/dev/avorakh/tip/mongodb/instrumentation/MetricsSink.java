@@ -0,0 +1,37 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+/**
+ * Destination of the driver metrics collected by {@link MongoInstrumentation}. All methods are called on driver
+ * threads in the hot path and must be cheap and thread-safe; every method defaults to doing nothing.
+ */
+public interface MetricsSink {
+
+    MetricsSink NOOP = new MetricsSink() {};
+
+    /**
+     * @param commandName   database command, e.g. {@code find} or {@code aggregate}
+     * @param durationNanos round-trip time of the command as seen by the driver
+     * @param succeeded     whether the server reported success
+     */
+    default void recordCommand(String commandName, long durationNanos, boolean succeeded) {}
+
+    /**
+     * @param commandName   database command
+     * @param bytesSent     size of the command document
+     * @param bytesReceived size of the reply document, {@code 0} when the command failed
+     */
+    default void recordPayload(String commandName, long bytesSent, long bytesReceived) {}
+
+    /**
+     * @param waitNanos time a caller waited to check a connection out of the pool
+     * @param succeeded whether a connection was obtained
+     */
+    default void recordCheckout(long waitNanos, boolean succeeded) {}
+
+    /**
+     * @param server connection pool's server, {@code host:port}
+     * @param inUse  connections currently checked out
+     * @param idle   open connections waiting in the pool
+     */
+    default void recordPoolUsage(String server, int inUse, int idle) {}
+}
@@ -0,0 +1,100 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+
+/**
+ * Registers command and connection pool listeners that feed a {@link MetricsSink} on the settings of a
+ * {@link MongoClient}, and optionally {@link QueryDiagnostics} and {@link QueryShapeStatistics}. A disabled
+ * instrumentation registers nothing, so it adds no overhead to the driver's hot path.
+ */
+public final class MongoInstrumentation {
+
+    private static final MongoInstrumentation DISABLED =
+            new MongoInstrumentation(MetricsSink.NOOP, false, false, null, null);
+
+    private final MetricsSink sink;
+    private final boolean enabled;
+    private final boolean trackPayload;
+    private final QueryDiagnostics diagnostics;
+    private final QueryShapeStatistics shapeStatistics;
+
+    private MongoInstrumentation(
+            MetricsSink sink,
+            boolean enabled,
+            boolean trackPayload,
+            QueryDiagnostics diagnostics,
+            QueryShapeStatistics shapeStatistics) {
+        this.sink = sink;
+        this.enabled = enabled;
+        this.trackPayload = trackPayload;
+        this.diagnostics = diagnostics;
+        this.shapeStatistics = shapeStatistics;
+    }
+
+    public static MongoInstrumentation disabled() {
+        return DISABLED;
+    }
+
+    public static MongoInstrumentation of(MetricsSink sink) {
+        return new MongoInstrumentation(sink, true, false, null, null);
+    }
+
+    /**
+     * Also reports the bytes sent and received per command. Measuring them re-encodes command and reply
+     * documents that are not raw BSON, which costs CPU on every command.
+     */
+    public MongoInstrumentation withPayloadTracking() {
+        return new MongoInstrumentation(sink, enabled, true, diagnostics, shapeStatistics);
+    }
+
+    /**
+     * Also samples queries into the diagnostics; {@link #attach} the client once it is created. Works with
+     * metrics disabled, e.g. {@code MongoInstrumentation.disabled().withQueryDiagnostics(diagnostics)}.
+     */
+    public MongoInstrumentation withQueryDiagnostics(QueryDiagnostics diagnostics) {
+        return new MongoInstrumentation(sink, enabled, trackPayload, diagnostics, shapeStatistics);
+    }
+
+    /**
+     * Also times queries per normalized shape. Works with metrics disabled, like the query diagnostics.
+     */
+    public MongoInstrumentation withQueryShapeStatistics(QueryShapeStatistics shapeStatistics) {
+        return new MongoInstrumentation(sink, enabled, trackPayload, diagnostics, shapeStatistics);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public MetricsSink sink() {
+        return sink;
+    }
+
+    /**
+     * Hands the client to the query diagnostics, if any, so they can explain the sampled queries.
+     *
+     * @return the client
+     */
+    public MongoClient attach(MongoClient client) {
+        if (diagnostics != null) {
+            diagnostics.attach(client);
+        }
+        return client;
+    }
+
+    public MongoClientSettings.Builder applyTo(MongoClientSettings.Builder builder) {
+        if (diagnostics != null) {
+            builder.addCommandListener(diagnostics);
+        }
+        if (shapeStatistics != null) {
+            builder.addCommandListener(shapeStatistics);
+        }
+        if (!enabled) {
+            return builder;
+        }
+        return builder.addCommandListener(new CommandMetricsListener(sink, trackPayload))
+                .applyToConnectionPoolSettings(
+                        pool -> pool.addConnectionPoolListener(new ConnectionPoolMetricsListener(sink)));
+    }
+}
@@ -0,0 +1,112 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.MongoClientSettings;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+/**
+ * A filter or pipeline split into a canonical shape and the literal values taken out of it.
+ *
+ * <p>Filters that differ only in the order of their fields, operators, {@code $and}/{@code $or}/{@code $nor}
+ * clauses or {@code $in}/{@code $nin}/{@code $all} values normalize to the same shape and parameters. Everything
+ * else keeps its order and is compared in order, unlike {@link BsonDocument#equals}: queries that differ in the
+ * key order of a compound {@code $sort}, of a {@code $project} or {@code $group} spec or of a sub-document matched
+ * exactly are not equal. The shape alone is the same for queries that differ only in values. Values are replaced
+ * by {@code {$param: null}} placeholders in the shape; operators that change the plan rather than the selected
+ * values, such as {@code $exists}, {@code $type} and {@code $expr}, are kept in it. Pipelines are shaped stage by
+ * stage: {@code $match} filters as above, {@code $limit} and {@code $skip} values as parameters, every other stage
+ * as is.
+ *
+ * @param shape      the canonical filter, or the array of canonical stages, with placeholders for the values
+ * @param parameters the values of the placeholders, in document order of the shape
+ */
+public record NormalizedQuery(BsonValue shape, List<BsonValue> parameters) {
+
+    private static final JsonWriterSettings EXTENDED_JSON =
+            JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    public NormalizedQuery {
+        parameters = List.copyOf(parameters);
+    }
+
+    public static NormalizedQuery ofFilter(Bson filter) {
+        return ofFilter(filter, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    public static NormalizedQuery ofFilter(Bson filter, CodecRegistry registry) {
+        return ShapeNormalizer.filter(filter.toBsonDocument(BsonDocument.class, registry));
+    }
+
+    public static NormalizedQuery ofPipeline(List<? extends Bson> pipeline) {
+        return ofPipeline(pipeline, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    public static NormalizedQuery ofPipeline(List<? extends Bson> pipeline, CodecRegistry registry) {
+        List<BsonDocument> stages = new ArrayList<>(pipeline.size());
+        pipeline.forEach(stage -> stages.add(stage.toBsonDocument(BsonDocument.class, registry)));
+        return ShapeNormalizer.pipeline(stages);
+    }
+
+    /**
+     * @return the canonical filter or pipeline: the shape with the placeholders replaced by the parameters
+     */
+    public BsonValue canonical() {
+        Iterator<BsonValue> values = parameters.iterator();
+        return bind(shape, values);
+    }
+
+    /**
+     * Compares shape and parameters as extended JSON, which keeps both the key order and the value types.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof NormalizedQuery query
+                && json(shape).equals(json(query.shape))
+                && json(new BsonArray(parameters)).equals(json(new BsonArray(query.parameters)));
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(json(shape), json(new BsonArray(parameters)));
+    }
+
+    @Override
+    public String toString() {
+        return (shape.isDocument() ? shape.asDocument().toJson() : new BsonDocument("pipeline", shape).toJson())
+                + " " + parameters;
+    }
+
+    /**
+     * @return the value as extended JSON, equal for two values exactly when they have the same keys in the same
+     *     order and the same values of the same types
+     */
+    static String json(BsonValue value) {
+        return new BsonDocument("value", value).toJson(EXTENDED_JSON);
+    }
+
+    private static BsonValue bind(BsonValue value, Iterator<BsonValue> values) {
+        if (ShapeNormalizer.isPlaceholder(value)) {
+            return values.next();
+        }
+        if (value.isDocument()) {
+            var bound = new BsonDocument();
+            value.asDocument().forEach((key, field) -> bound.append(key, bind(field, values)));
+            return bound;
+        }
+        if (value.isArray()) {
+            var bound = new BsonArray();
+            value.asArray().forEach(element -> bound.add(bind(element, values)));
+            return bound;
+        }
+        return value;
+    }
+}
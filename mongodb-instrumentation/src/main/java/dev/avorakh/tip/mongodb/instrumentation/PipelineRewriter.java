@@ -0,0 +1,178 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.MongoClientSettings;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+/**
+ * Moves {@code $match} stages of a pipeline ahead of the {@code $sort}, {@code $project}, {@code $set},
+ * {@code $addFields} and {@code $unset} stages before them, so documents are filtered before they are sorted or
+ * reshaped and equivalent pipelines get the same {@link NormalizedQuery} shape. A {@code $match} passes a sort
+ * unconditionally and a reshaping stage only when that stage leaves every field the filter reads unchanged;
+ * adjacent {@code $match} stages are combined with {@code $and}. No stage is moved across any other stage, e.g.
+ * a {@code $limit}, since that would change the result.
+ */
+public final class PipelineRewriter {
+
+    private static final Set<String> RESHAPING_STAGES = Set.of("$project", "$set", "$addFields", "$unset");
+
+    private PipelineRewriter() {}
+
+    public static List<BsonDocument> matchFirst(List<? extends Bson> pipeline) {
+        return matchFirst(pipeline, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    public static List<BsonDocument> matchFirst(List<? extends Bson> pipeline, CodecRegistry registry) {
+        List<BsonDocument> stages = new ArrayList<>(pipeline.size());
+        pipeline.forEach(stage -> stages.add(stage.toBsonDocument(BsonDocument.class, registry)));
+        for (int i = 0; i < stages.size(); i++) {
+            if (!isMatch(stages.get(i))) {
+                continue;
+            }
+            BsonDocument match = stages.get(i);
+            BsonDocument filter = match.getDocument("$match");
+            Set<String> fields = filteredFields(filter);
+            int position = i;
+            while (position > 0 && canPass(stages.get(position - 1), fields)) {
+                stages.set(position, stages.get(position - 1));
+                position--;
+            }
+            stages.set(position, match);
+            if (position > 0 && isMatch(stages.get(position - 1))) {
+                BsonDocument previous = stages.get(position - 1).getDocument("$match");
+                var combined = new BsonDocument("$and", new BsonArray(List.of(previous, filter)));
+                stages.set(position - 1, new BsonDocument("$match", combined));
+                stages.remove(position);
+                // the stage after the moved $match now sits at i
+                i--;
+            }
+        }
+        return stages;
+    }
+
+    /**
+     * Rewrites the pipeline with {@link #matchFirst} and rejects it when a {@code $match} still directly follows
+     * a sort or a reshaping stage.
+     *
+     * @throws IllegalArgumentException when a {@code $match} cannot be moved ahead of such a stage
+     */
+    public static List<BsonDocument> requireMatchFirst(List<? extends Bson> pipeline) {
+        List<BsonDocument> stages = matchFirst(pipeline);
+        for (int i = 1; i < stages.size(); i++) {
+            String previous = stages.get(i - 1).getFirstKey();
+            if (isMatch(stages.get(i)) && (previous.equals("$sort") || RESHAPING_STAGES.contains(previous))) {
+                throw new IllegalArgumentException("$match at stage " + i + " depends on the preceding " + previous
+                        + " and cannot run first: " + stages.get(i).toJson());
+            }
+        }
+        return stages;
+    }
+
+    private static boolean isMatch(BsonDocument stage) {
+        return stage.getFirstKey().equals("$match") && stage.isDocument("$match");
+    }
+
+    private static boolean canPass(BsonDocument stage, Set<String> fields) {
+        String name = stage.getFirstKey();
+        if (name.equals("$sort")) {
+            return true;
+        }
+        if (fields == null || !RESHAPING_STAGES.contains(name)) {
+            return false;
+        }
+        BsonValue spec = stage.get(name);
+        return switch (name) {
+            case "$project" -> spec.isDocument() && keeps(spec.asDocument(), fields);
+            case "$unset" -> fields.stream().noneMatch(field -> unsets(spec, field));
+            default -> spec.isDocument()
+                    && fields.stream().noneMatch(field -> spec.asDocument().keySet().stream()
+                            .anyMatch(assigned -> overlaps(field, assigned)));
+        };
+    }
+
+    private static boolean keeps(BsonDocument projection, Set<String> fields) {
+        boolean inclusion = projection.entrySet().stream()
+                .anyMatch(entry -> !entry.getKey().equals("_id") && !isExclusion(entry.getValue()));
+        return fields.stream()
+                .allMatch(field -> inclusion
+                        ? included(projection, field)
+                        : projection.keySet().stream().noneMatch(excluded -> overlaps(field, excluded)));
+    }
+
+    private static boolean included(BsonDocument projection, String field) {
+        boolean replaced = projection.entrySet().stream()
+                .anyMatch(entry -> !isInclusion(entry.getValue()) && overlaps(field, entry.getKey()));
+        if (replaced) {
+            return false;
+        }
+        // _id is kept unless excluded, which counts as replaced above
+        return field.equals("_id")
+                || field.startsWith("_id.")
+                || projection.entrySet().stream()
+                        .anyMatch(entry -> isInclusion(entry.getValue())
+                                && (field.equals(entry.getKey()) || field.startsWith(entry.getKey() + ".")));
+    }
+
+    private static boolean unsets(BsonValue spec, String field) {
+        if (spec.isString()) {
+            return overlaps(field, spec.asString().getValue());
+        }
+        return !spec.isArray()
+                || spec.asArray().stream()
+                        .anyMatch(unset -> !unset.isString() || overlaps(field, unset.asString().getValue()));
+    }
+
+    private static boolean isInclusion(BsonValue value) {
+        if (value.isBoolean()) {
+            return value.asBoolean().getValue();
+        }
+        return value.isNumber() && value.asNumber().doubleValue() != 0;
+    }
+
+    private static boolean isExclusion(BsonValue value) {
+        if (value.isBoolean()) {
+            return !value.asBoolean().getValue();
+        }
+        return value.isNumber() && value.asNumber().doubleValue() == 0;
+    }
+
+    private static boolean overlaps(String field, String other) {
+        return field.equals(other) || field.startsWith(other + ".") || other.startsWith(field + ".");
+    }
+
+    /**
+     * @return the field paths the filter reads, {@code null} when they cannot be told, e.g. with {@code $expr}
+     */
+    private static Set<String> filteredFields(BsonDocument filter) {
+        Set<String> fields = new LinkedHashSet<>();
+        for (var entry : filter.entrySet()) {
+            String key = entry.getKey();
+            if (key.equals("$and") || key.equals("$or") || key.equals("$nor")) {
+                if (!entry.getValue().isArray()) {
+                    return null;
+                }
+                for (BsonValue clause : entry.getValue().asArray()) {
+                    Set<String> clauseFields = clause.isDocument() ? filteredFields(clause.asDocument()) : null;
+                    if (clauseFields == null) {
+                        return null;
+                    }
+                    fields.addAll(clauseFields);
+                }
+            } else if (key.startsWith("$")) {
+                if (!key.equals("$comment")) {
+                    return null;
+                }
+            } else {
+                fields.add(key);
+            }
+        }
+        return fields;
+    }
+}
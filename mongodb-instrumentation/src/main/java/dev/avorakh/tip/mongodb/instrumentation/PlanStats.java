@@ -0,0 +1,34 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+/**
+ * Averages over the explained samples of a {@link QueryShape}.
+ *
+ * @param samples                  number of explained commands
+ * @param docsExaminedPerReturned  documents examined per document returned
+ * @param keysExaminedPerReturned  index keys examined per document returned
+ * @param averageExecutionMillis   mean server-side execution time in milliseconds
+ * @param collectionScans          samples whose winning plan scanned the collection
+ * @param lastPlan                 winning plan of the latest sample
+ */
+public record PlanStats(
+        long samples,
+        double docsExaminedPerReturned,
+        double keysExaminedPerReturned,
+        double averageExecutionMillis,
+        long collectionScans,
+        String lastPlan) {
+
+    /**
+     * @return whether the shape scanned the collection or examined more documents per result than the ratio
+     */
+    public boolean isInefficient(double inefficientRatio) {
+        return collectionScans > 0 || docsExaminedPerReturned > inefficientRatio;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "samples=%d, docs/returned=%.1f, keys/returned=%.1f, avg=%.1f ms, plan=%s",
+                samples, docsExaminedPerReturned, keysExaminedPerReturned, averageExecutionMillis, lastPlan);
+    }
+}
@@ -0,0 +1,10 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+/**
+ * Connection counts of one server's pool.
+ *
+ * @param server {@code host:port} of the server
+ * @param inUse  connections checked out
+ * @param idle   open connections waiting in the pool
+ */
+public record PoolUsage(String server, int inUse, int idle) {}
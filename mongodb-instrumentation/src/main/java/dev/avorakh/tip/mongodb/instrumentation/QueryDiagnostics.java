@@ -0,0 +1,214 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+
+/**
+ * Explains a sample of the {@code find} and {@code aggregate} commands of a client, aggregates the execution
+ * statistics per {@link QueryShape} and flags shapes that scan the collection or examine many more documents than
+ * they return. For those it suggests a compound index following the equality, sort, range rule and, when
+ * {@link QueryDiagnosticsConfig#createIndexes()} is set, creates it, keeping the statistics from before the index
+ * so the {@link #report()} shows whether the shape got faster.
+ *
+ * <p>Register it through {@link MongoInstrumentation#withQueryDiagnostics} and {@link #attach} the client once it
+ * is created. Sampled commands are copied on the driver's thread and explained one at a time on a background
+ * thread; samples are dropped while that thread is busy, so diagnostics never slow the application down.
+ */
+public final class QueryDiagnostics implements CommandListener, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryDiagnostics.class.getName());
+    private static final Set<String> EXPLAINED_COMMANDS = Set.of("find", "aggregate");
+    private static final Set<String> INTERNAL_DATABASES = Set.of("admin", "config", "local");
+    private static final Set<String> EXPLAINABLE_FIELDS = Set.of(
+            "find",
+            "aggregate",
+            "filter",
+            "sort",
+            "projection",
+            "hint",
+            "skip",
+            "limit",
+            "collation",
+            "pipeline",
+            "cursor",
+            "allowDiskUse",
+            "let");
+    private static final int QUEUE_CAPACITY = 64;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final QueryDiagnosticsConfig config;
+    private final ThreadPoolExecutor explainer;
+    private final Map<QueryShape, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private volatile MongoClient client;
+
+    public QueryDiagnostics(QueryDiagnosticsConfig config) {
+        this.config = config;
+        this.explainer = new ThreadPoolExecutor(
+                1,
+                1,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                task -> Thread.ofPlatform().name("query-diagnostics").daemon(true).unstarted(task),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Sets the client the sampled commands are explained, and indexes are created, with. Until a client is
+     * attached nothing is sampled.
+     */
+    public void attach(MongoClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (client == null
+                || !EXPLAINED_COMMANDS.contains(event.getCommandName())
+                || INTERNAL_DATABASES.contains(event.getDatabaseName())
+                || ThreadLocalRandom.current().nextDouble() >= config.sampleRate()) {
+            return;
+        }
+        // The event's command is only valid during the callback.
+        BsonDocument command = new BsonDocument();
+        event.getCommand().forEach((key, value) -> {
+            if (EXPLAINABLE_FIELDS.contains(key)) {
+                command.append(key, value);
+            }
+        });
+        BsonDocument copy = command.clone();
+        String database = event.getDatabaseName();
+        QueryShape.of(database, copy).ifPresent(shape -> explainer.execute(() -> explain(database, shape, copy)));
+    }
+
+    /**
+     * @return the observed shapes, most documents examined per result first
+     */
+    public List<ShapeReport> report() {
+        List<ShapeReport> reports = new ArrayList<>(shapes.size());
+        shapes.values().forEach(stats -> reports.add(stats.report()));
+        reports.sort(Comparator.comparingDouble(ShapeReport::docsExaminedPerReturned).reversed());
+        return reports;
+    }
+
+    /**
+     * Stops sampling and waits for the queued explains to finish; close it before the attached client.
+     */
+    @Override
+    public void close() {
+        explainer.shutdown();
+        try {
+            if (!explainer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                explainer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            explainer.shutdownNow();
+        }
+    }
+
+    private void explain(String database, QueryShape shape, BsonDocument command) {
+        try {
+            var explainCommand =
+                    new BsonDocument("explain", command).append("verbosity", new BsonString("executionStats"));
+            var sample = ExplainSample.of(client.getDatabase(database).runCommand(explainCommand, BsonDocument.class));
+            ShapeStats stats = shapes.computeIfAbsent(shape, ShapeStats::new);
+            stats.record(sample);
+            if (config.createIndexes()) {
+                stats.indexToCreate().ifPresent(keys -> createIndex(shape, stats, keys));
+            }
+        } catch (MongoException e) {
+            LOGGER.log(Level.FINE, "Explain of " + shape + " failed", e);
+        }
+    }
+
+    private void createIndex(QueryShape shape, ShapeStats stats, BsonDocument keys) {
+        String name = client.getDatabase(shape.namespace().getDatabaseName())
+                .getCollection(shape.namespace().getCollectionName())
+                .createIndex(keys);
+        stats.indexCreated();
+        LOGGER.info("✅ Created index " + name + " " + keys.toJson() + " on " + shape.namespace() + " for " + shape);
+    }
+
+    private final class ShapeStats {
+        private final QueryShape shape;
+        private long samples;
+        private long docsExamined;
+        private long keysExamined;
+        private long returned;
+        private long executionMillis;
+        private long collectionScans;
+        private String lastPlan = "UNKNOWN";
+        private PlanStats beforeIndex;
+
+        ShapeStats(QueryShape shape) {
+            this.shape = shape;
+        }
+
+        synchronized void record(ExplainSample sample) {
+            samples++;
+            docsExamined += sample.docsExamined();
+            keysExamined += sample.keysExamined();
+            returned += sample.returned();
+            executionMillis += sample.executionTime();
+            if (sample.isCollectionScan()) {
+                collectionScans++;
+            }
+            lastPlan = sample.plan();
+        }
+
+        synchronized Optional<BsonDocument> indexToCreate() {
+            if (beforeIndex != null
+                    || samples < config.minSamples()
+                    || !stats().isInefficient(config.inefficientRatio())) {
+                return Optional.empty();
+            }
+            return shape.suggestedIndex();
+        }
+
+        synchronized void indexCreated() {
+            beforeIndex = stats();
+            samples = 0;
+            docsExamined = 0;
+            keysExamined = 0;
+            returned = 0;
+            executionMillis = 0;
+            collectionScans = 0;
+        }
+
+        synchronized ShapeReport report() {
+            PlanStats current = stats();
+            boolean inefficient = samples > 0 && current.isInefficient(config.inefficientRatio());
+            var suggestedIndex = inefficient || beforeIndex != null ? shape.suggestedIndex().orElse(null) : null;
+            return new ShapeReport(shape, current, beforeIndex, suggestedIndex, inefficient);
+        }
+
+        private PlanStats stats() {
+            double perReturned = Math.max(returned, 1);
+            return new PlanStats(
+                    samples,
+                    docsExamined / perReturned,
+                    keysExamined / perReturned,
+                    samples == 0 ? 0 : (double) executionMillis / samples,
+                    collectionScans,
+                    lastPlan);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+/**
+ * Settings of {@link QueryDiagnostics}.
+ *
+ * @param sampleRate        fraction of {@code find} and {@code aggregate} commands that are explained
+ * @param inefficientRatio  documents examined per document returned above which a plan is flagged inefficient
+ * @param minSamples        samples of a query shape needed before an index is created for it
+ * @param createIndexes     whether the suggested index of an inefficient shape is created
+ */
+public record QueryDiagnosticsConfig(
+        double sampleRate, double inefficientRatio, int minSamples, boolean createIndexes) {
+
+    public QueryDiagnosticsConfig {
+        if (sampleRate <= 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be in (0, 1]: " + sampleRate);
+        }
+        if (inefficientRatio < 1 || minSamples < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid thresholds: ratio=" + inefficientRatio + ", minSamples=" + minSamples);
+        }
+    }
+
+    public static QueryDiagnosticsConfig defaults() {
+        return new QueryDiagnosticsConfig(0.01, 10, 5, false);
+    }
+
+    public QueryDiagnosticsConfig withIndexCreation() {
+        return new QueryDiagnosticsConfig(sampleRate, inefficientRatio, minSamples, true);
+    }
+}
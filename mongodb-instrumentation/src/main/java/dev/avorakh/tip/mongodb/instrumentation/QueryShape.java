@@ -0,0 +1,142 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.MongoNamespace;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+
+/**
+ * The shape of a {@code find} or {@code aggregate} command: the fields it filters on by equality and by range and
+ * the fields it sorts on, without the values. Aggregations are shaped by their leading {@code $match} and
+ * {@code $sort} stages.
+ *
+ * @param namespace namespace the command reads
+ * @param operation {@code find} or {@code aggregate}
+ * @param equality  fields compared with {@code $eq} or {@code $in}, in filter order
+ * @param sort      sort specification, empty when unsorted
+ * @param range     fields compared with any other operator, in filter order
+ * @param indexable whether every predicate of the filter was classified; {@code $or}, {@code $expr} and other
+ *                  top-level operators are not
+ */
+public record QueryShape(
+        MongoNamespace namespace,
+        String operation,
+        List<String> equality,
+        BsonDocument sort,
+        List<String> range,
+        boolean indexable) {
+
+    private static final Set<String> EQUALITY_OPERATORS = Set.of("$eq", "$in");
+
+    /**
+     * @return the shape of the command, empty for commands that are not shaped, e.g. database aggregations or
+     *     pipelines that write with {@code $out} or {@code $merge}
+     */
+    public static Optional<QueryShape> of(String database, BsonDocument command) {
+        String operation = command.getFirstKey();
+        if (!command.isString(operation)) {
+            return Optional.empty();
+        }
+        var namespace = new MongoNamespace(database, command.getString(operation).getValue());
+        BsonDocument filter = new BsonDocument();
+        BsonDocument sort = new BsonDocument();
+        if (operation.equals("find")) {
+            filter = command.getDocument("filter", filter);
+            sort = command.getDocument("sort", sort);
+        } else {
+            BsonArray pipeline = command.getArray("pipeline", new BsonArray());
+            if (pipeline.stream().anyMatch(stage -> writes(stage.asDocument()))) {
+                return Optional.empty();
+            }
+            int next = 0;
+            if (next < pipeline.size() && pipeline.get(next).asDocument().isDocument("$match")) {
+                filter = pipeline.get(next++).asDocument().getDocument("$match");
+            }
+            if (next < pipeline.size() && pipeline.get(next).asDocument().isDocument("$sort")) {
+                sort = pipeline.get(next).asDocument().getDocument("$sort");
+            }
+        }
+        var classifier = new Classifier();
+        classifier.classify(filter);
+        classifier.range.removeAll(classifier.equality);
+        return Optional.of(new QueryShape(
+                namespace,
+                operation,
+                List.copyOf(classifier.equality),
+                sort.clone(),
+                List.copyOf(classifier.range),
+                classifier.indexable));
+    }
+
+    /**
+     * Suggests a compound index following the equality, sort, range rule: equality fields first, then the sort
+     * fields in sort order and direction, then the range fields.
+     *
+     * @return the index keys, empty when the shape is not indexable or has no fields
+     */
+    public Optional<BsonDocument> suggestedIndex() {
+        if (!indexable) {
+            return Optional.empty();
+        }
+        var keys = new BsonDocument();
+        equality.forEach(field -> keys.append(field, new BsonInt32(1)));
+        sort.forEach((field, direction) -> {
+            if (!keys.containsKey(field)) {
+                keys.append(field, direction);
+            }
+        });
+        range.forEach(field -> {
+            if (!keys.containsKey(field)) {
+                keys.append(field, new BsonInt32(1));
+            }
+        });
+        return keys.isEmpty() ? Optional.empty() : Optional.of(keys);
+    }
+
+    @Override
+    public String toString() {
+        return namespace + " " + operation + " eq=" + equality + " sort=" + sort.toJson() + " range=" + range
+                + (indexable ? "" : " (not indexable)");
+    }
+
+    private static boolean writes(BsonDocument stage) {
+        return stage.containsKey("$out") || stage.containsKey("$merge");
+    }
+
+    private static final class Classifier {
+        private final Set<String> equality = new LinkedHashSet<>();
+        private final Set<String> range = new LinkedHashSet<>();
+        private boolean indexable = true;
+
+        void classify(BsonDocument filter) {
+            filter.forEach((key, value) -> {
+                if (key.equals("$and") && value.isArray()) {
+                    value.asArray().forEach(clause -> classify(clause.asDocument()));
+                } else if (key.startsWith("$")) {
+                    indexable = false;
+                } else if (isOperatorDocument(value)) {
+                    value.asDocument().keySet().forEach(operator -> {
+                        if (EQUALITY_OPERATORS.contains(operator)) {
+                            equality.add(key);
+                        } else {
+                            range.add(key);
+                        }
+                    });
+                } else {
+                    equality.add(key);
+                }
+            });
+        }
+
+        private static boolean isOperatorDocument(BsonValue value) {
+            return value.isDocument()
+                    && !value.asDocument().isEmpty()
+                    && value.asDocument().getFirstKey().startsWith("$");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+/**
+ * Counts and times the {@code find}, {@code aggregate}, {@code count} and {@code distinct} commands of a client
+ * per {@link NormalizedQuery} shape, so the slowest shapes can be reported however their literal values and field
+ * order vary. Only the initial command of a cursor is timed, not its {@code getMore}s.
+ *
+ * <p>Register it through {@link MongoInstrumentation#withQueryShapeStatistics}. Every command is normalized on
+ * the driver's thread; once {@code maxShapes} shapes are tracked, commands of new shapes are only counted as
+ * untracked.
+ */
+public final class QueryShapeStatistics implements CommandListener {
+
+    private static final Map<String, String> FILTER_FIELDS =
+            Map.of("find", "filter", "aggregate", "pipeline", "count", "query", "distinct", "query");
+
+    private final int maxShapes;
+    private final Map<ShapeKey, Timing> shapes = new ConcurrentHashMap<>();
+    private final Map<Integer, Timing> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder untracked = new LongAdder();
+
+    public QueryShapeStatistics(int maxShapes) {
+        if (maxShapes < 1) {
+            throw new IllegalArgumentException("maxShapes must be positive: " + maxShapes);
+        }
+        this.maxShapes = maxShapes;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String filterField = FILTER_FIELDS.get(event.getCommandName());
+        if (filterField == null) {
+            return;
+        }
+        BsonDocument command = event.getCommand();
+        BsonValue collection = command.get(event.getCommandName());
+        if (collection == null || !collection.isString()) {
+            return;
+        }
+        NormalizedQuery query = normalize(command.get(filterField));
+        var key = new ShapeKey(
+                new MongoNamespace(event.getDatabaseName(), collection.asString().getValue()),
+                event.getCommandName(),
+                query.shape(),
+                NormalizedQuery.json(query.shape()));
+        Timing timing = shapes.get(key);
+        if (timing == null) {
+            if (shapes.size() >= maxShapes) {
+                untracked.increment();
+                return;
+            }
+            timing = shapes.computeIfAbsent(key, Timing::new);
+        }
+        inFlight.put(event.getRequestId(), timing);
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Timing timing = inFlight.remove(event.getRequestId());
+        if (timing != null) {
+            timing.latency.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Timing timing = inFlight.remove(event.getRequestId());
+        if (timing != null) {
+            timing.failures.increment();
+            timing.latency.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * @return the {@code limit} shapes with the highest 99th percentile latency, slowest first
+     */
+    public List<ShapeTiming> slowest(int limit) {
+        List<ShapeTiming> timings = new ArrayList<>(shapes.size());
+        shapes.values().forEach(timing -> timings.add(timing.snapshot()));
+        timings.sort(Comparator.comparing((ShapeTiming timing) -> timing.latency().p99()).reversed());
+        return timings.subList(0, Math.min(limit, timings.size()));
+    }
+
+    /**
+     * @return commands not timed because {@code maxShapes} shapes were already tracked
+     */
+    public long untracked() {
+        return untracked.sum();
+    }
+
+    private static NormalizedQuery normalize(BsonValue filter) {
+        if (filter != null && filter.isArray()) {
+            List<BsonDocument> stages = new ArrayList<>(filter.asArray().size());
+            filter.asArray().forEach(stage -> stages.add(stage.asDocument()));
+            return ShapeNormalizer.pipeline(stages);
+        }
+        return ShapeNormalizer.filter(filter != null && filter.isDocument() ? filter.asDocument() : new BsonDocument());
+    }
+
+    // shapes equal as BsonDocuments may still differ in the key order of a $sort, the JSON tells them apart
+    private record ShapeKey(MongoNamespace namespace, String operation, BsonValue shape, String shapeJson) {}
+
+    private static final class Timing {
+        private final ShapeKey key;
+        private final LongAdder failures = new LongAdder();
+        private final LatencyRecorder latency = new LatencyRecorder();
+
+        Timing(ShapeKey key) {
+            this.key = key;
+        }
+
+        ShapeTiming snapshot() {
+            return new ShapeTiming(key.namespace(), key.operation(), key.shape(), failures.sum(), latency.snapshot());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+
+/**
+ * Builds {@link NormalizedQuery}s. Shapes are built from new documents; values kept in them are copied.
+ */
+final class ShapeNormalizer {
+
+    private static final String PLACEHOLDER_KEY = "$param";
+    private static final Set<String> LOGICAL_OPERATORS = Set.of("$and", "$or", "$nor");
+    private static final Set<String> SET_OPERATORS = Set.of("$in", "$nin", "$all");
+    private static final Set<String> SHAPE_OPERATORS = Set.of("$exists", "$type", "$options", "$expr", "$where");
+    private static final Set<String> PARAMETER_STAGES = Set.of("$limit", "$skip");
+    private static final Comparator<NormalizedQuery> CLAUSE_ORDER = Comparator.comparing(
+                    (NormalizedQuery clause) -> clause.shape().toString())
+            .thenComparing(clause -> clause.parameters().toString());
+
+    private ShapeNormalizer() {}
+
+    static NormalizedQuery filter(BsonDocument filter) {
+        List<BsonValue> parameters = new ArrayList<>();
+        BsonDocument shape = filter(filter, parameters);
+        return new NormalizedQuery(shape, parameters);
+    }
+
+    static NormalizedQuery pipeline(List<BsonDocument> stages) {
+        List<BsonValue> parameters = new ArrayList<>();
+        var shape = new BsonArray();
+        for (BsonDocument stage : stages) {
+            String name = stage.getFirstKey();
+            BsonValue value = stage.get(name);
+            if (name.equals("$match") && value.isDocument()) {
+                shape.add(new BsonDocument(name, filter(value.asDocument(), parameters)));
+            } else if (PARAMETER_STAGES.contains(name)) {
+                shape.add(new BsonDocument(name, placeholder()));
+                parameters.add(copy(value));
+            } else {
+                shape.add(stage.clone());
+            }
+        }
+        return new NormalizedQuery(shape, parameters);
+    }
+
+    static boolean isPlaceholder(BsonValue value) {
+        return value.isDocument()
+                && value.asDocument().size() == 1
+                && value.asDocument().isNull(PLACEHOLDER_KEY);
+    }
+
+    private static BsonDocument filter(BsonDocument filter, List<BsonValue> parameters) {
+        var shape = new BsonDocument();
+        new TreeMap<>(filter).forEach((key, value) -> {
+            if (LOGICAL_OPERATORS.contains(key) && value.isArray()) {
+                shape.append(key, clauses(value.asArray(), parameters));
+            } else if (key.startsWith("$")) {
+                shape.append(key, copy(value));
+            } else if (isOperatorDocument(value)) {
+                shape.append(key, operators(value.asDocument(), parameters));
+            } else {
+                shape.append(key, parameter(value, parameters));
+            }
+        });
+        return shape;
+    }
+
+    private static BsonArray clauses(BsonArray clauses, List<BsonValue> parameters) {
+        List<NormalizedQuery> normalized = new ArrayList<>(clauses.size());
+        clauses.forEach(clause -> normalized.add(filter(clause.asDocument())));
+        normalized.sort(CLAUSE_ORDER);
+        var shape = new BsonArray();
+        normalized.forEach(clause -> {
+            shape.add(clause.shape());
+            parameters.addAll(clause.parameters());
+        });
+        return shape;
+    }
+
+    private static BsonDocument operators(BsonDocument operators, List<BsonValue> parameters) {
+        var shape = new BsonDocument();
+        new TreeMap<>(operators).forEach((operator, value) -> {
+            if (SHAPE_OPERATORS.contains(operator)) {
+                shape.append(operator, copy(value));
+            } else if (operator.equals("$not") && isOperatorDocument(value)) {
+                shape.append(operator, operators(value.asDocument(), parameters));
+            } else if (operator.equals("$elemMatch") && value.isDocument()) {
+                shape.append(
+                        operator,
+                        isOperatorDocument(value)
+                                ? operators(value.asDocument(), parameters)
+                                : filter(value.asDocument(), parameters));
+            } else if (SET_OPERATORS.contains(operator) && value.isArray()) {
+                List<BsonValue> values = new ArrayList<>(value.asArray().getValues());
+                values.sort(Comparator.comparing(BsonValue::toString));
+                shape.append(operator, parameter(new BsonArray(values), parameters));
+            } else {
+                shape.append(operator, parameter(value, parameters));
+            }
+        });
+        return shape;
+    }
+
+    private static BsonDocument parameter(BsonValue value, List<BsonValue> parameters) {
+        parameters.add(copy(value));
+        return placeholder();
+    }
+
+    private static BsonValue copy(BsonValue value) {
+        if (value.isDocument()) {
+            return value.asDocument().clone();
+        }
+        return value.isArray() ? value.asArray().clone() : value;
+    }
+
+    private static BsonDocument placeholder() {
+        return new BsonDocument(PLACEHOLDER_KEY, BsonNull.VALUE);
+    }
+
+    private static boolean isOperatorDocument(BsonValue value) {
+        return value.isDocument()
+                && !value.asDocument().isEmpty()
+                && value.asDocument().getFirstKey().startsWith("$");
+    }
+}
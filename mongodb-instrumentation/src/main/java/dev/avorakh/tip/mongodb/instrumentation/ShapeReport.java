@@ -0,0 +1,52 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import org.bson.BsonDocument;
+
+/**
+ * What {@link QueryDiagnostics} observed for one query shape.
+ *
+ * @param shape          the query shape
+ * @param current        statistics since the suggested index was created, or of all samples when it was not
+ * @param beforeIndex    statistics up to the creation of the suggested index, {@code null} when it was not created
+ * @param suggestedIndex index keys suggested for the shape, {@code null} when its plans are efficient or the shape
+ *                       is not indexable
+ * @param inefficient    whether the current plans are flagged inefficient
+ */
+public record ShapeReport(
+        QueryShape shape, PlanStats current, PlanStats beforeIndex, BsonDocument suggestedIndex, boolean inefficient) {
+
+    public double docsExaminedPerReturned() {
+        return current.docsExaminedPerReturned();
+    }
+
+    public boolean indexCreated() {
+        return beforeIndex != null;
+    }
+
+    /**
+     * @return how many times fewer documents are examined per result since the index was created, {@code 1} when
+     *     no index was created
+     */
+    public double improvement() {
+        if (beforeIndex == null || current.samples() == 0) {
+            return 1;
+        }
+        return beforeIndex.docsExaminedPerReturned() / Math.max(current.docsExaminedPerReturned(), 1);
+    }
+
+    @Override
+    public String toString() {
+        var report = new StringBuilder(shape.toString()).append(": ").append(current);
+        if (inefficient) {
+            report.append(" ❌ inefficient");
+        }
+        if (suggestedIndex != null) {
+            report.append(", suggested index ").append(suggestedIndex.toJson());
+        }
+        if (beforeIndex != null) {
+            report.append(String.format(
+                    ", index created, before: %s, %.1fx fewer documents examined", beforeIndex, improvement()));
+        }
+        return report.toString();
+    }
+}
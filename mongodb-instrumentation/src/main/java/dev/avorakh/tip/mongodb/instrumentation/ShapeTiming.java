@@ -0,0 +1,26 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import com.mongodb.MongoNamespace;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+/**
+ * Executions of one query shape observed by {@link QueryShapeStatistics}.
+ *
+ * @param namespace namespace the commands read
+ * @param operation command name, e.g. {@code find} or {@code aggregate}
+ * @param shape     the {@link NormalizedQuery#shape()} of the commands' filter or pipeline
+ * @param failures  commands of the shape that failed
+ * @param latency   round trip of the commands of the shape, failed ones included
+ */
+public record ShapeTiming(
+        MongoNamespace namespace, String operation, BsonValue shape, long failures, LatencySnapshot latency) {
+
+    @Override
+    public String toString() {
+        String json =
+                shape.isDocument() ? shape.asDocument().toJson() : new BsonDocument("pipeline", shape).toJson();
+        return namespace + " " + operation + " " + json + ": " + latency
+                + (failures > 0 ? ", failures=" + failures : "");
+    }
+}
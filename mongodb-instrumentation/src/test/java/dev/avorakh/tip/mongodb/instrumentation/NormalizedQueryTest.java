@@ -0,0 +1,122 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonValue;
+import org.junit.jupiter.api.Test;
+
+class NormalizedQueryTest {
+
+    @Test
+    void fieldAndOperatorOrderDoesNotChangeTheQuery() {
+        assertEquals(filter("{a: 1, b: {$gt: 2, $lt: 5}}"), filter("{b: {$lt: 5, $gt: 2}, a: 1}"));
+    }
+
+    @Test
+    void clauseOrderDoesNotChangeTheQuery() {
+        assertEquals(filter("{$or: [{a: 1}, {b: 2}, {a: 0}]}"), filter("{$or: [{a: 0}, {b: 2}, {a: 1}]}"));
+        assertEquals(
+                filter("{$and: [{x: {$in: [1, 2]}}, {y: 'k'}]}"), filter("{$and: [{y: 'k'}, {x: {$in: [2, 1]}}]}"));
+    }
+
+    @Test
+    void setOperatorValueOrderDoesNotChangeTheQuery() {
+        assertEquals(filter("{a: {$in: [3, 1, 2]}}"), filter("{a: {$in: [1, 2, 3]}}"));
+        assertEquals(filter("{a: {$nin: ['z', 'y']}}"), filter("{a: {$nin: ['y', 'z']}}"));
+        assertEquals(filter("{tags: {$all: ['b', 'a']}}"), filter("{tags: {$all: ['a', 'b']}}"));
+    }
+
+    @Test
+    void valuesBecomeParametersOfTheSameShape() {
+        NormalizedQuery first = filter("{a: 1, b: {$gt: 2}}");
+        NormalizedQuery second = filter("{a: 7, b: {$gt: 9}}");
+
+        assertEquals(first.shape(), second.shape());
+        assertNotEquals(first, second);
+        assertEquals(List.of(new BsonInt32(1), new BsonInt32(2)), first.parameters());
+    }
+
+    @Test
+    void parametersOfDifferentTypesDoNotCollide() {
+        NormalizedQuery int32 = filter("{a: 1}");
+        NormalizedQuery int64 = filter("{a: {$numberLong: '1'}}");
+        NormalizedQuery string = filter("{a: '1'}");
+
+        assertEquals(int32.shape(), string.shape());
+        assertNotEquals(int32, int64);
+        assertNotEquals(int32, string);
+        assertNotEquals(int64, string);
+    }
+
+    @Test
+    void setOperatorValuesOfDifferentTypesDoNotCollide() {
+        assertEquals(filter("{a: {$in: [1, '1']}}"), filter("{a: {$in: ['1', 1]}}"));
+        assertNotEquals(filter("{a: {$in: [1, 2]}}"), filter("{a: {$in: ['1', 2]}}"));
+    }
+
+    @Test
+    void shapeOperatorsStayInTheShape() {
+        NormalizedQuery query = filter("{a: {$exists: true}, b: {$type: 'string'}}");
+
+        assertEquals(List.of(), query.parameters());
+        assertNotEquals(query.shape(), filter("{a: {$exists: false}, b: {$type: 'string'}}").shape());
+    }
+
+    @Test
+    void canonicalFilterNormalizesToTheSameQuery() {
+        NormalizedQuery query = filter("{$or: [{b: {$in: [2, 1]}}, {a: 'x'}], c: {$not: {$gt: 4}}}");
+
+        BsonValue canonical = query.canonical();
+
+        assertEquals(query, NormalizedQuery.ofFilter(canonical.asDocument()));
+        assertEquals(BsonDocument.parse("{$or: [{a: 'x'}, {b: {$in: [1, 2]}}], c: {$not: {$gt: 4}}}"), canonical);
+    }
+
+    @Test
+    void pipelineLimitAndSkipAreParameters() {
+        NormalizedQuery first = pipeline("{$match: {a: 1}}", "{$skip: 10}", "{$limit: 5}");
+        NormalizedQuery second = pipeline("{$match: {a: 2}}", "{$skip: 20}", "{$limit: 50}");
+
+        assertEquals(first.shape(), second.shape());
+        assertEquals(List.of(new BsonInt32(1), new BsonInt32(10), new BsonInt32(5)), first.parameters());
+    }
+
+    @Test
+    void otherPipelineStagesStayInTheShape() {
+        NormalizedQuery ascending = pipeline("{$match: {a: 1}}", "{$sort: {b: 1}}");
+        NormalizedQuery descending = pipeline("{$match: {a: 1}}", "{$sort: {b: -1}}");
+
+        assertNotEquals(ascending.shape(), descending.shape());
+        assertEquals(
+                new BsonArray(List.of(BsonDocument.parse("{$match: {a: 1}}"), BsonDocument.parse("{$sort: {b: 1}}"))),
+                ascending.canonical());
+    }
+
+    @Test
+    void keyOrderOfSortAndLiteralDocumentsChangesTheQuery() {
+        NormalizedQuery sort = pipeline("{$match: {a: 1}}", "{$sort: {a: 1, b: -1}}");
+        NormalizedQuery reversedSort = pipeline("{$match: {a: 1}}", "{$sort: {b: -1, a: 1}}");
+
+        assertNotEquals(sort, reversedSort);
+        assertNotEquals(sort.hashCode(), reversedSort.hashCode());
+        assertNotEquals(pipeline("{$project: {a: 1, b: 1}}"), pipeline("{$project: {b: 1, a: 1}}"));
+        assertNotEquals(
+                pipeline("{$group: {_id: {a: '$a', b: '$b'}}}"), pipeline("{$group: {_id: {b: '$b', a: '$a'}}}"));
+        assertNotEquals(filter("{a: {x: 1, y: 2}}"), filter("{a: {y: 2, x: 1}}"));
+        assertEquals(filter("{a: {x: 1, y: 2}, b: 1}"), filter("{b: 1, a: {x: 1, y: 2}}"));
+    }
+
+    private static NormalizedQuery filter(String json) {
+        return NormalizedQuery.ofFilter(BsonDocument.parse(json));
+    }
+
+    private static NormalizedQuery pipeline(String... stages) {
+        return NormalizedQuery.ofPipeline(Arrays.stream(stages).map(BsonDocument::parse).toList());
+    }
+}
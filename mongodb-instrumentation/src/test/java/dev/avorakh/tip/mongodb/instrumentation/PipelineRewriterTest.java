@@ -0,0 +1,102 @@
+package dev.avorakh.tip.mongodb.instrumentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+class PipelineRewriterTest {
+
+    @Test
+    void matchMovesAheadOfSort() {
+        assertEquals(
+                stages("{$match: {a: 1}}", "{$sort: {a: -1}}"),
+                PipelineRewriter.matchFirst(stages("{$sort: {a: -1}}", "{$match: {a: 1}}")));
+    }
+
+    @Test
+    void matchPassesProjectionKeepingItsFields() {
+        assertEquals(
+                stages("{$match: {a: 1, 'b.c': 2}}", "{$project: {a: 1, b: 1}}"),
+                PipelineRewriter.matchFirst(stages("{$project: {a: 1, b: 1}}", "{$match: {a: 1, 'b.c': 2}}")));
+        assertEquals(
+                stages("{$match: {a: 1}}", "{$project: {b: 0}}"),
+                PipelineRewriter.matchFirst(stages("{$project: {b: 0}}", "{$match: {a: 1}}")));
+        assertEquals(
+                stages("{$match: {_id: 1}}", "{$project: {a: 1}}"),
+                PipelineRewriter.matchFirst(stages("{$project: {a: 1}}", "{$match: {_id: 1}}")));
+    }
+
+    @Test
+    void matchStaysBehindProjectionChangingItsFields() {
+        assertUnchanged("{$project: {b: 1}}", "{$match: {a: 1}}");
+        assertUnchanged("{$project: {a: 0}}", "{$match: {a: 1}}");
+        assertUnchanged("{$project: {a: '$b'}}", "{$match: {a: 1}}");
+        assertUnchanged("{$project: {a: 1, _id: 0}}", "{$match: {_id: 1}}");
+    }
+
+    @Test
+    void matchPassesSetOfOtherFields() {
+        assertEquals(
+                stages("{$match: {a: 1}}", "{$set: {b: '$c'}}"),
+                PipelineRewriter.matchFirst(stages("{$set: {b: '$c'}}", "{$match: {a: 1}}")));
+        assertEquals(
+                stages("{$match: {a: 1}}", "{$unset: ['b', 'c']}"),
+                PipelineRewriter.matchFirst(stages("{$unset: ['b', 'c']}", "{$match: {a: 1}}")));
+    }
+
+    @Test
+    void matchStaysBehindSetOfItsFields() {
+        assertUnchanged("{$set: {a: '$b'}}", "{$match: {a: 1}}");
+        assertUnchanged("{$addFields: {'a.b': 1}}", "{$match: {a: 1}}");
+        assertUnchanged("{$set: {a: 1}}", "{$match: {'a.b': 1}}");
+        assertUnchanged("{$unset: 'a'}", "{$match: {a: 1}}");
+    }
+
+    @Test
+    void matchWithUnknownFieldsOnlyPassesSort() {
+        assertUnchanged("{$set: {b: 1}}", "{$match: {$expr: {$gt: ['$a', 1]}}}");
+        assertEquals(
+                stages("{$match: {$expr: {$gt: ['$a', 1]}}}", "{$sort: {a: 1}}"),
+                PipelineRewriter.matchFirst(stages("{$sort: {a: 1}}", "{$match: {$expr: {$gt: ['$a', 1]}}}")));
+    }
+
+    @Test
+    void matchStaysBehindOtherStages() {
+        assertUnchanged("{$limit: 10}", "{$match: {a: 1}}");
+        assertUnchanged("{$group: {_id: '$a'}}", "{$match: {_id: 1}}");
+        assertUnchanged("{$sort: {a: 1}}", "{$limit: 10}", "{$match: {a: 1}}");
+    }
+
+    @Test
+    void adjacentMatchesAreMerged() {
+        assertEquals(
+                stages("{$match: {$and: [{a: 1}, {b: 2}]}}", "{$sort: {a: 1}}"),
+                PipelineRewriter.matchFirst(stages("{$match: {a: 1}}", "{$sort: {a: 1}}", "{$match: {b: 2}}")));
+        assertEquals(
+                stages("{$match: {$and: [{$and: [{a: 1}, {b: 2}]}, {c: 3}]}}", "{$limit: 5}"),
+                PipelineRewriter.matchFirst(
+                        stages("{$match: {a: 1}}", "{$match: {b: 2}}", "{$match: {c: 3}}", "{$limit: 5}")));
+    }
+
+    @Test
+    void requireMatchFirstRejectsDependentMatch() {
+        assertEquals(
+                stages("{$match: {a: 1}}", "{$project: {a: 1}}"),
+                PipelineRewriter.requireMatchFirst(stages("{$project: {a: 1}}", "{$match: {a: 1}}")));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> PipelineRewriter.requireMatchFirst(stages("{$set: {a: 1}}", "{$match: {a: 1}}")));
+    }
+
+    private static void assertUnchanged(String... pipeline) {
+        assertEquals(stages(pipeline), PipelineRewriter.matchFirst(stages(pipeline)));
+    }
+
+    private static List<BsonDocument> stages(String... stages) {
+        return Arrays.stream(stages).map(BsonDocument::parse).toList();
+    }
+}
@@ -0,0 +1,50 @@
+package dev.avorakh.tip.mongodb.cache;
+
+import dev.avorakh.tip.mongodb.model.GroceryItem;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+
+/**
+ * Enables the second-level {@link GroceryItem} caches. The cache manager, its Caffeine (W-TinyLFU) size bound and
+ * the Micrometer cache metrics are auto-configured from the {@code spring.cache.*} properties.
+ *
+ * <p>Local writes through {@code ItemRepository} clear the caches. With
+ * {@code grocery.cache.change-stream.enabled=true} the caches are also cleared on every change to
+ * {@code grocery_items}, so writes made by other nodes are picked up; change streams need a replica set.
+ */
+@Slf4j
+@Configuration
+@EnableCaching
+public class GroceryItemCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "grocery.cache.change-stream.enabled", havingValue = "true")
+    public MessageListenerContainer groceryItemCacheInvalidator(MongoTemplate template, CacheManager cacheManager) {
+        var container = new DefaultMessageListenerContainer(template);
+        container.register(
+                ChangeStreamRequest.builder(message -> evictAll(cacheManager))
+                        .collection(template.getCollectionName(GroceryItem.class))
+                        .build(),
+                Document.class,
+                error -> log.warn("Grocery item change stream failed, caches may be stale", error));
+        return container;
+    }
+
+    private static void evictAll(CacheManager cacheManager) {
+        GroceryItemCaches.ALL.forEach(name -> {
+            var cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        });
+    }
+}
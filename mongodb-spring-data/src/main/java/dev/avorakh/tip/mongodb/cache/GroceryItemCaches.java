@@ -0,0 +1,32 @@
+package dev.avorakh.tip.mongodb.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.List;
+import org.springframework.cache.annotation.CacheEvict;
+
+/**
+ * Names of the second-level {@code GroceryItem} caches, keyed by id, by name and by category.
+ */
+public final class GroceryItemCaches {
+
+    public static final String BY_ID = "groceryItemsById";
+    public static final String BY_NAME = "groceryItemsByName";
+    public static final String BY_CATEGORY = "groceryItemsByCategory";
+    public static final List<String> ALL = List.of(BY_ID, BY_NAME, BY_CATEGORY);
+
+    private GroceryItemCaches() {}
+
+    /**
+     * Clears every grocery item cache after the annotated write. A write may change the name or category of an
+     * item, so entries cannot be evicted selectively.
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @CacheEvict(cacheNames = {BY_ID, BY_NAME, BY_CATEGORY}, allEntries = true)
+    public @interface EvictAll {}
+}
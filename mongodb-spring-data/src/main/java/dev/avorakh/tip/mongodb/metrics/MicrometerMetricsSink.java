@@ -0,0 +1,102 @@
+package dev.avorakh.tip.mongodb.metrics;
+
+import dev.avorakh.tip.mongodb.instrumentation.MetricsSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Publishes the driver metrics collected by {@link dev.avorakh.tip.mongodb.instrumentation.MongoInstrumentation}
+ * to Micrometer: command and checkout wait timers with p50/p99, payload byte counters and per-server pool
+ * gauges.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class MicrometerMetricsSink implements MetricsSink {
+
+    MeterRegistry registry;
+    Map<String, Timer> commandTimers = new ConcurrentHashMap<>();
+    Map<String, PoolGauges> pools = new ConcurrentHashMap<>();
+    Timer checkoutWait;
+    Timer failedCheckoutWait;
+    Counter bytesSent;
+    Counter bytesReceived;
+
+    public MicrometerMetricsSink(MeterRegistry registry) {
+        this.registry = registry;
+        this.checkoutWait = checkoutTimer("success");
+        this.failedCheckoutWait = checkoutTimer("failure");
+        this.bytesSent = payloadCounter("sent");
+        this.bytesReceived = payloadCounter("received");
+    }
+
+    @Override
+    public void recordCommand(String commandName, long durationNanos, boolean succeeded) {
+        String status = succeeded ? "success" : "failure";
+        commandTimers
+                .computeIfAbsent(commandName + '/' + status, key -> Timer.builder("mongodb.command")
+                        .description("Round-trip time of MongoDB commands")
+                        .tag("command", commandName)
+                        .tag("status", status)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(registry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordPayload(String commandName, long sent, long received) {
+        bytesSent.increment(sent);
+        bytesReceived.increment(received);
+    }
+
+    @Override
+    public void recordCheckout(long waitNanos, boolean succeeded) {
+        (succeeded ? checkoutWait : failedCheckoutWait).record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordPoolUsage(String server, int inUse, int idle) {
+        PoolGauges gauges = pools.computeIfAbsent(server, this::registerPoolGauges);
+        gauges.inUse().set(inUse);
+        gauges.idle().set(idle);
+    }
+
+    private PoolGauges registerPoolGauges(String server) {
+        var gauges = new PoolGauges(new AtomicInteger(), new AtomicInteger());
+        Gauge.builder("mongodb.pool.connections", gauges.inUse(), AtomicInteger::get)
+                .description("Connections of the MongoDB connection pool")
+                .tag("server", server)
+                .tag("state", "in_use")
+                .register(registry);
+        Gauge.builder("mongodb.pool.connections", gauges.idle(), AtomicInteger::get)
+                .description("Connections of the MongoDB connection pool")
+                .tag("server", server)
+                .tag("state", "idle")
+                .register(registry);
+        return gauges;
+    }
+
+    private Timer checkoutTimer(String status) {
+        return Timer.builder("mongodb.pool.checkout.wait")
+                .description("Time spent waiting for a pooled MongoDB connection")
+                .tag("status", status)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    private Counter payloadCounter(String direction) {
+        return Counter.builder("mongodb.command.payload")
+                .description("Bytes of MongoDB command and reply documents")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    private record PoolGauges(AtomicInteger inUse, AtomicInteger idle) {}
+}
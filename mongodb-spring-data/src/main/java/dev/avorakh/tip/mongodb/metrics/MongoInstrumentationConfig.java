@@ -0,0 +1,30 @@
+package dev.avorakh.tip.mongodb.metrics;
+
+import dev.avorakh.tip.mongodb.instrumentation.MongoInstrumentation;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the driver command and connection pool listeners on the auto-configured client when
+ * {@code mongodb.instrumentation.enabled=true}; otherwise the client is left untouched.
+ */
+@Configuration
+@ConditionalOnProperty(name = "mongodb.instrumentation.enabled", havingValue = "true")
+public class MongoInstrumentationConfig {
+
+    @Bean
+    public MongoInstrumentation mongoInstrumentation(
+            MeterRegistry registry, @Value("${mongodb.instrumentation.track-payload:false}") boolean trackPayload) {
+        var instrumentation = MongoInstrumentation.of(new MicrometerMetricsSink(registry));
+        return trackPayload ? instrumentation.withPayloadTracking() : instrumentation;
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoInstrumentationCustomizer(MongoInstrumentation instrumentation) {
+        return instrumentation::applyTo;
+    }
+}
@@ -0,0 +1,16 @@
+package dev.avorakh.tip.mongodb.model;
+
+/**
+ * Closed interface projection of a {@link GroceryItem} for catalog listings; only the declared properties are
+ * read from the server.
+ */
+public interface GroceryItemListing {
+
+    String getId();
+
+    String getName();
+
+    int getQuantity();
+
+    String getCategory();
+}
@@ -0,0 +1,7 @@
+package dev.avorakh.tip.mongodb.model;
+
+/**
+ * DTO projection of a {@link GroceryItem}: only {@code name} and {@code quantity} are read from the server, and
+ * the record is created through its constructor without materializing the entity.
+ */
+public record GroceryItemSummary(String name, int quantity) {}
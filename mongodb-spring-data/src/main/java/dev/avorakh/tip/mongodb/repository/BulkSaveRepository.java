@@ -0,0 +1,21 @@
+package dev.avorakh.tip.mongodb.repository;
+
+import java.util.List;
+
+/**
+ * Repository fragment that saves many entities with one unordered {@code bulkWrite} instead of one {@code save}
+ * per entity.
+ *
+ * @param <T> the entity type of the repository
+ */
+public interface BulkSaveRepository<T> {
+
+    /**
+     * Inserts the entities without an id, assigning one, and replaces the others by id, inserting them when they
+     * do not exist. Lifecycle events and callbacks are published as for {@code saveAll}; version properties are
+     * not checked.
+     *
+     * @return the saved entities, with their ids set
+     */
+    <S extends T> List<S> bulkSaveAll(Iterable<S> entities);
+}
@@ -0,0 +1,70 @@
+package dev.avorakh.tip.mongodb.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.util.Streamable;
+
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BulkSaveRepositoryImpl<T> implements BulkSaveRepository<T> {
+
+    MongoTemplate template;
+
+    @Override
+    public <S extends T> List<S> bulkSaveAll(Iterable<S> entities) {
+        List<S> toSave = Streamable.of(entities).toList();
+        if (toSave.isEmpty()) {
+            return toSave;
+        }
+        Class<?> type = toSave.get(0).getClass();
+        MongoPersistentEntity<?> entity =
+                template.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        MongoPersistentProperty idProperty = entity.getRequiredIdProperty();
+        BulkOperations bulk = template.bulkOps(BulkMode.UNORDERED, type);
+        int inserts = 0;
+        for (S item : toSave) {
+            Object id = entity.getIdentifierAccessor(item).getIdentifier();
+            if (id == null) {
+                entity.getPropertyAccessor(item).setProperty(idProperty, newId(idProperty));
+                bulk.insert(item);
+                inserts++;
+            } else {
+                bulk.replaceOne(query(where("_id").is(id)), item, FindAndReplaceOptions.options().upsert());
+            }
+        }
+        var result = bulk.execute();
+        log.debug(
+                "Bulk saved {} {}: {} inserted, {} replaced, {} upserted",
+                toSave.size(),
+                type.getSimpleName(),
+                inserts,
+                result.getModifiedCount(),
+                result.getUpserts().size());
+        return toSave;
+    }
+
+    private static Object newId(MongoPersistentProperty idProperty) {
+        if (idProperty.getType() == String.class) {
+            return new ObjectId().toHexString();
+        }
+        if (idProperty.getType() == ObjectId.class) {
+            return new ObjectId();
+        }
+        throw new IllegalArgumentException(
+                "Cannot generate an id of type " + idProperty.getType().getName() + " for " + idProperty);
+    }
+}
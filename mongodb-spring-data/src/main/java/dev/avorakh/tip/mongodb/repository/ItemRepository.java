@@ -1,15 +1,90 @@
 package dev.avorakh.tip.mongodb.repository;
 
+import dev.avorakh.tip.mongodb.cache.GroceryItemCaches;
+import dev.avorakh.tip.mongodb.cache.GroceryItemCaches.EvictAll;
 import dev.avorakh.tip.mongodb.model.GroceryItem;
+import dev.avorakh.tip.mongodb.model.GroceryItemListing;
+import dev.avorakh.tip.mongodb.model.GroceryItemSummary;
 import java.util.List;
+import java.util.Optional;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
-public interface ItemRepository extends MongoRepository<GroceryItem, String> {
+/**
+ * Lookups by id, name and category are served from the {@link GroceryItemCaches}; every write declared here
+ * clears them. Cached items are shared and must not be modified.
+ */
+public interface ItemRepository
+        extends MongoRepository<GroceryItem, String>, ItemRepositoryCustom, BulkSaveRepository<GroceryItem> {
 
     @Query("{name:'?0'}")
+    @Cacheable(cacheNames = GroceryItemCaches.BY_NAME, key = "#p0", sync = true)
     GroceryItem findItemByName(String name);
 
     @Query(value = "{category:'?0'}", fields = "{'name' : 1, 'quantity' : 1}")
-    List<GroceryItem> findAll(String category);
+    @Cacheable(cacheNames = GroceryItemCaches.BY_CATEGORY, key = "#p0", sync = true)
+    List<GroceryItemSummary> findAll(String category);
+
+    /**
+     * One keyset window of the catalog; scroll with {@link org.springframework.data.support.WindowIterator}
+     * starting at {@link ScrollPosition#keyset()}. Each window costs the same no matter how deep it is.
+     */
+    Window<GroceryItemListing> findAllBy(ScrollPosition position, Limit limit, Sort sort);
+
+    Slice<GroceryItemListing> findAllBy(Pageable pageable);
+
+    @Override
+    @Cacheable(cacheNames = GroceryItemCaches.BY_ID, key = "#p0", sync = true)
+    Optional<GroceryItem> findById(String id);
+
+    @Override
+    @EvictAll
+    <S extends GroceryItem> S save(S entity);
+
+    @Override
+    @EvictAll
+    <S extends GroceryItem> List<S> saveAll(Iterable<S> entities);
+
+    @Override
+    @EvictAll
+    <S extends GroceryItem> S insert(S entity);
+
+    @Override
+    @EvictAll
+    <S extends GroceryItem> List<S> insert(Iterable<S> entities);
+
+    @Override
+    @EvictAll
+    <S extends GroceryItem> List<S> bulkSaveAll(Iterable<S> entities);
+
+    @Override
+    @EvictAll
+    long updateCategory(String oldCategory, String newCategory);
+
+    @Override
+    @EvictAll
+    void deleteById(String id);
+
+    @Override
+    @EvictAll
+    void delete(GroceryItem entity);
+
+    @Override
+    @EvictAll
+    void deleteAllById(Iterable<? extends String> ids);
+
+    @Override
+    @EvictAll
+    void deleteAll();
+
+    @Override
+    @EvictAll
+    void deleteAll(Iterable<? extends GroceryItem> entities);
 }
@@ -0,0 +1,14 @@
+package dev.avorakh.tip.mongodb.repository;
+
+/**
+ * Server-side bulk operations on grocery items, implemented with {@code MongoTemplate}.
+ */
+public interface ItemRepositoryCustom {
+
+    /**
+     * Moves every item of a category to another one with a single {@code updateMany}, without loading the items.
+     *
+     * @return number of modified items
+     */
+    long updateCategory(String oldCategory, String newCategory);
+}
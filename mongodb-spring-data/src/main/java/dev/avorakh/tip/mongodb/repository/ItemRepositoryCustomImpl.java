@@ -0,0 +1,27 @@
+package dev.avorakh.tip.mongodb.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import dev.avorakh.tip.mongodb.model.GroceryItem;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+
+    MongoTemplate template;
+
+    @Override
+    public long updateCategory(String oldCategory, String newCategory) {
+        return template.updateMulti(
+                        query(where("category").is(oldCategory)),
+                        Update.update("category", newCategory),
+                        GroceryItem.class)
+                .getModifiedCount();
+    }
+}
@@ -0,0 +1,20 @@
+package dev.avorakh.tip.mongodb.repository;
+
+import dev.avorakh.tip.mongodb.model.GroceryItem;
+import dev.avorakh.tip.mongodb.model.GroceryItemSummary;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link ItemRepository} with the same queries.
+ */
+public interface ReactiveItemRepository extends ReactiveMongoRepository<GroceryItem, String> {
+
+    @Query("{name:'?0'}")
+    Mono<GroceryItem> findItemByName(String name);
+
+    @Query(value = "{category:'?0'}", fields = "{'name' : 1, 'quantity' : 1}")
+    Flux<GroceryItemSummary> findAll(String category);
+}
@@ -1,12 +1,17 @@
 package dev.avorakh.tip.mongodb.svc;
 
 import dev.avorakh.tip.mongodb.model.GroceryItem;
+import dev.avorakh.tip.mongodb.model.GroceryItemSummary;
 import dev.avorakh.tip.mongodb.repository.ItemRepository;
 import java.util.List;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.WindowIterator;
 import org.springframework.stereotype.Service;
 
 @Slf4j
@@ -15,6 +20,9 @@ import org.springframework.stereotype.Service;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class GroceryItemDemoService {
 
+    private static final int PAGE_SIZE = 100;
+    private static final Sort BY_ID = Sort.by("id");
+
     ItemRepository repository;
 
     public void createSampleItems() {
@@ -45,33 +53,33 @@ public class GroceryItemDemoService {
                         .quantity(6)
                         .category("snacks")
                         .build());
-        repository.saveAll(items);
+        repository.bulkSaveAll(items);
         log.info("Sample items created.");
     }
 
     public void printAllItems() {
-        repository.findAll().forEach(this::printItemDetails);
+        WindowIterator.of(position -> repository.findAllBy(position, Limit.of(PAGE_SIZE), BY_ID))
+                .startingAt(ScrollPosition.keyset())
+                .forEachRemaining(item -> printItemDetails(item.getName(), item.getQuantity(), item.getCategory()));
     }
 
     public void printItemByName(String name) {
         GroceryItem item = repository.findItemByName(name);
         if (item != null) {
-            printItemDetails(item);
+            printItemDetails(item.getName(), item.getQuantity(), item.getCategory());
         } else {
             log.warn("Item with name '{}' not found.", name);
         }
     }
 
     public void printItemsByCategory(String category) {
-        List<GroceryItem> items = repository.findAll(category);
-        items.forEach(item -> log.info("Name: {}, Quantity: {}", item.getName(), item.getQuantity()));
+        List<GroceryItemSummary> items = repository.findAll(category);
+        items.forEach(item -> log.info("Name: {}, Quantity: {}", item.name(), item.quantity()));
     }
 
     public void updateCategory(String oldCategory, String newCategory) {
-        List<GroceryItem> items = repository.findAll(oldCategory);
-        items.forEach(item -> item.setCategory(newCategory));
-        repository.saveAll(items);
-        log.info("Updated category from '{}' to '{}' for {} items.", oldCategory, newCategory, items.size());
+        long updated = repository.updateCategory(oldCategory, newCategory);
+        log.info("Updated category from '{}' to '{}' for {} items.", oldCategory, newCategory, updated);
     }
 
     public void deleteItemById(String id) {
@@ -84,7 +92,7 @@ public class GroceryItemDemoService {
         log.info("Total items in the database: {}", count);
     }
 
-    private void printItemDetails(GroceryItem item) {
-        log.info("Item Name: {}\nQuantity: {}\nCategory: {}", item.getName(), item.getQuantity(), item.getCategory());
+    private void printItemDetails(String name, int quantity, String category) {
+        log.info("Item Name: {}\nQuantity: {}\nCategory: {}", name, quantity, category);
     }
 }
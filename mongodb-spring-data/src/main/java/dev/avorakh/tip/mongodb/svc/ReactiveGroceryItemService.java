@@ -0,0 +1,46 @@
+package dev.avorakh.tip.mongodb.svc;
+
+import dev.avorakh.tip.mongodb.model.GroceryItem;
+import dev.avorakh.tip.mongodb.model.GroceryItemSummary;
+import dev.avorakh.tip.mongodb.repository.ReactiveItemRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReactiveGroceryItemService {
+
+    ReactiveItemRepository repository;
+
+    public Flux<GroceryItem> findAll() {
+        return repository.findAll();
+    }
+
+    public Mono<GroceryItem> findByName(String name) {
+        return repository
+                .findItemByName(name)
+                .doOnSuccess(item -> {
+                    if (item == null) {
+                        log.warn("Item with name '{}' not found.", name);
+                    }
+                });
+    }
+
+    /**
+     * Streams the name and quantity of every item in the category as the driver receives them.
+     */
+    public Flux<GroceryItemSummary> findByCategory(String category) {
+        return repository.findAll(category);
+    }
+
+    public Mono<Long> count() {
+        return repository.count();
+    }
+}
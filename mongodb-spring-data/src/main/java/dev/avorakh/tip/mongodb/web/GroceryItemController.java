@@ -0,0 +1,53 @@
+package dev.avorakh.tip.mongodb.web;
+
+import dev.avorakh.tip.mongodb.model.GroceryItem;
+import dev.avorakh.tip.mongodb.model.GroceryItemSummary;
+import dev.avorakh.tip.mongodb.svc.ReactiveGroceryItemService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-only catalog endpoints on the reactive repository; no request holds a thread while it waits for MongoDB.
+ */
+@RestController
+@RequestMapping("/items")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class GroceryItemController {
+
+    ReactiveGroceryItemService service;
+
+    @GetMapping
+    public Flux<GroceryItem> findAll() {
+        return service.findAll();
+    }
+
+    @GetMapping("/count")
+    public Mono<Long> count() {
+        return service.count();
+    }
+
+    @GetMapping("/{name}")
+    public Mono<ResponseEntity<GroceryItem>> findByName(@PathVariable String name) {
+        return service.findByName(name).map(ResponseEntity::ok).defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams the items of the category as server-sent events, one event per item, ending after the last one.
+     */
+    @GetMapping(path = "/categories/{category}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<GroceryItemSummary>> streamCategory(@PathVariable String category) {
+        return service.findByCategory(category)
+                .map(item -> ServerSentEvent.builder(item).event("item").build());
+    }
+}